@@ -0,0 +1,118 @@
+package com.protectium.bench;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Utilidades compartidas por los benchmarks: mundos falsos (sin servidor)
+ * y generación de datasets sintéticos reproducibles.
+ */
+final class BenchSupport {
+
+    /** Separación media entre protecciones: mantiene una densidad realista. */
+    private static final int ESPACIADO = 64;
+
+    private BenchSupport() {
+    }
+
+    /**
+     * Mundo Bukkit falso. Solo responde lo que el plugin usa fuera del
+     * servidor: nombre, UUID y bloques (siempre sólidos, para que la carga
+     * no descarte protecciones). El resto retorna valores por defecto.
+     */
+    static World mundoFalso(String nombre) {
+        UUID id = UUID.nameUUIDFromBytes(nombre.getBytes());
+        Block bloqueSolido = (Block) Proxy.newProxyInstance(BenchSupport.class.getClassLoader(),
+                new Class<?>[] { Block.class },
+                (proxy, metodo, args) -> metodo.getName().equals("getType")
+                        ? Material.STONE
+                        : porDefecto(metodo));
+        return (World) Proxy.newProxyInstance(BenchSupport.class.getClassLoader(),
+                new Class<?>[] { World.class },
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "getName", "toString" -> nombre;
+                    case "getUID" -> id;
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    case "getBlockAt" -> bloqueSolido;
+                    default -> porDefecto(metodo);
+                });
+    }
+
+    /** Lado del cuadrado (en bloques) donde se reparten n protecciones. */
+    static int lado(int n) {
+        return (int) Math.sqrt(n) * ESPACIADO;
+    }
+
+    /**
+     * n protecciones de tipo y radio aleatorios, sin dos en el mismo bloque.
+     * El radio se elige entre 1 y radioMax.
+     */
+    static List<ProtectionRecord> protecciones(World mundo, int n, int radioMax, long semilla) {
+        Random random = new Random(semilla);
+        ProtectionType[] tipos = ProtectionType.values();
+        int lado = lado(n);
+        Set<Long> ocupadas = new HashSet<>(n * 2);
+        List<ProtectionRecord> out = new ArrayList<>(n);
+
+        while (out.size() < n) {
+            int x = random.nextInt(lado) - lado / 2;
+            int z = random.nextInt(lado) - lado / 2;
+            if (!ocupadas.add(((long) x << 32) | (z & 0xFFFFFFFFL)))
+                continue;
+            ProtectionRecord rec = new ProtectionRecord(
+                    tipos[random.nextInt(tipos.length)],
+                    new Location(mundo, x, 64, z),
+                    1 + random.nextInt(radioMax),
+                    UUID.randomUUID());
+            out.add(rec);
+        }
+        return out;
+    }
+
+    /** Puntos de consulta uniformes sobre el mismo cuadrado del dataset. */
+    static Location[] puntos(World mundo, int nProtecciones, int cantidad, long semilla) {
+        Random random = new Random(semilla);
+        int lado = lado(nProtecciones);
+        Location[] out = new Location[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            out[i] = new Location(mundo,
+                    random.nextInt(lado) - lado / 2, 64, random.nextInt(lado) - lado / 2);
+        }
+        return out;
+    }
+
+    private static Object porDefecto(Method metodo) {
+        Class<?> tipo = metodo.getReturnType();
+        if (!tipo.isPrimitive() || tipo == void.class)
+            return null;
+        if (tipo == boolean.class)
+            return false;
+        if (tipo == char.class)
+            return '\0';
+        if (tipo == float.class)
+            return 0f;
+        if (tipo == double.class)
+            return 0d;
+        if (tipo == long.class)
+            return 0L;
+        if (tipo == byte.class)
+            return (byte) 0;
+        if (tipo == short.class)
+            return (short) 0;
+        return 0;
+    }
+}
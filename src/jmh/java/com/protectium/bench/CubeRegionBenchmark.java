@@ -0,0 +1,59 @@
+package com.protectium.bench;
+
+import com.protectium.protection.CubeRegion;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geometría pura: la comprobación de contención que corre en cada evento
+ * y la generación de puntos de cara que usan los efectos visuales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CubeRegionBenchmark {
+
+    @Param({ "8", "32", "128" })
+    public int radio;
+
+    private World mundo;
+    private CubeRegion cubo;
+    private Location dentro;
+    private Location fuera;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        mundo = BenchSupport.mundoFalso("world");
+        cubo = new CubeRegion(new Location(mundo, 100, 64, 100), radio);
+        dentro = new Location(mundo, 100 + radio / 2, 70, 100 - radio / 2);
+        fuera = new Location(mundo, 100 + radio + 5, 70, 100);
+    }
+
+    @Benchmark
+    public boolean contieneDentro() {
+        return cubo.contiene(dentro);
+    }
+
+    @Benchmark
+    public boolean contieneFuera() {
+        return cubo.contiene(fuera);
+    }
+
+    @Benchmark
+    public boolean contieneColumna() {
+        return cubo.contieneColumna(dentro.getBlockX(), dentro.getBlockZ());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<Location> puntosCara() {
+        return cubo.puntosCara(mundo, 2);
+    }
+}
@@ -0,0 +1,79 @@
+package com.protectium.bench;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.registry.ProtectionRegistry;
+import com.protectium.storage.PersistenceManager;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Guardado y carga completos contra un directorio temporal.
+ * Los mundos se resuelven contra un mundo falso cuyos bloques son sólidos,
+ * así que la carga restaura todas las protecciones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int protecciones;
+
+    @Param({ "yaml", "binario" })
+    public String formato;
+
+    private File carpeta;
+    private World mundo;
+    private Logger logger;
+    private PersistenceManager guardado;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        carpeta = Files.createTempDirectory("protectium-bench").toFile();
+        mundo = BenchSupport.mundoFalso("world");
+        logger = Logger.getLogger("protectium-bench");
+        logger.setLevel(java.util.logging.Level.OFF);
+
+        ProtectionRegistry registry = new ProtectionRegistry();
+        for (ProtectionRecord rec : BenchSupport.protecciones(mundo, protecciones, 32, 42L)) {
+            registry.registrar(rec);
+        }
+        guardado = new PersistenceManager(carpeta, logger, registry, nombre -> mundo,
+                PersistenceManager.formatoPorNombre(formato, logger));
+        guardado.saveAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        guardado.cerrar();
+        File[] archivos = carpeta.listFiles();
+        if (archivos != null) {
+            for (File f : archivos)
+                f.delete();
+        }
+        carpeta.delete();
+    }
+
+    @Benchmark
+    public void saveAll() {
+        guardado.saveAll();
+    }
+
+    @Benchmark
+    public int loadAll() {
+        PersistenceManager carga = new PersistenceManager(carpeta, logger, new ProtectionRegistry(),
+                nombre -> mundo, PersistenceManager.formatoPorNombre(formato, logger));
+        int cargadas = carga.loadAll();
+        carga.cerrar();
+        return cargadas;
+    }
+}
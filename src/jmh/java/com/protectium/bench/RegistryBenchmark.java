@@ -0,0 +1,150 @@
+package com.protectium.bench;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import com.protectium.registry.ProtectionRegistry;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Camino caliente del registro: las consultas que hacen los listeners en
+ * cada evento y las mutaciones al colocar/romper.
+ *
+ * Correr con -prof gc para ver gc.alloc.rate.norm (bytes por operación):
+ * buscarContenedorasStringKeys reproduce el índice anterior por claves
+ * "mundo:cx:cz" como línea base, y romperSinProteccionStringKeys la clave
+ * "mundo:x:y:z" del índice por ubicación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistryBenchmark {
+
+    private static final int PUNTOS = 4096;
+
+    @Param({ "1000", "10000", "100000" })
+    public int protecciones;
+
+    private World mundo;
+    private ProtectionRegistry registry;
+    private Location[] puntos;
+    private List<ProtectionRecord> reserva;
+    private int cursor;
+    private int encontradas;
+    private Consumer<ProtectionRecord> contador;
+
+    // Línea base: índice por chunk con claves String, como antes del índice primitivo
+    private ConcurrentHashMap<String, Set<String>> porChunkLegado;
+    private ConcurrentHashMap<String, ProtectionRecord> porUbicacionLegado;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        mundo = BenchSupport.mundoFalso("world");
+        registry = new ProtectionRegistry();
+        porChunkLegado = new ConcurrentHashMap<>();
+        porUbicacionLegado = new ConcurrentHashMap<>();
+
+        for (ProtectionRecord rec : BenchSupport.protecciones(mundo, protecciones, 32, 42L)) {
+            registry.registrar(rec);
+            indexarLegado(rec);
+        }
+
+        // Protecciones fuera del dataset para medir registrar + eliminar sin
+        // alterar el tamaño del registro entre iteraciones.
+        reserva = new ArrayList<>();
+        World otro = BenchSupport.mundoFalso("reserva");
+        reserva.addAll(BenchSupport.protecciones(otro, 1024, 32, 7L));
+
+        puntos = BenchSupport.puntos(mundo, protecciones, PUNTOS, 1L);
+        contador = rec -> encontradas++;
+    }
+
+    private Location siguientePunto() {
+        return puntos[cursor++ & (PUNTOS - 1)];
+    }
+
+    @Benchmark
+    public List<ProtectionRecord> buscarContenedoras() {
+        return registry.buscarContenedoras(siguientePunto());
+    }
+
+    @Benchmark
+    public boolean hayContenedoraTipo() {
+        Location p = siguientePunto();
+        return registry.hayContenedora(p.getWorld(), p.getBlockX(), p.getBlockZ(), ProtectionType.REDSTONE);
+    }
+
+    @Benchmark
+    public int forEachContenedora() {
+        Location p = siguientePunto();
+        registry.forEachContenedora(p.getWorld(), p.getBlockX(), p.getBlockZ(), contador);
+        return encontradas;
+    }
+
+    @Benchmark
+    public List<ProtectionRecord> buscarContenedorasStringKeys() {
+        Location p = siguientePunto();
+        String chunkKey = p.getWorld().getName() + ":" + (p.getBlockX() >> 4) + ":" + (p.getBlockZ() >> 4);
+        Set<String> claves = porChunkLegado.get(chunkKey);
+        List<ProtectionRecord> resultado = new ArrayList<>();
+        if (claves == null)
+            return resultado;
+        for (String clave : claves) {
+            ProtectionRecord rec = porUbicacionLegado.get(clave);
+            if (rec != null && rec.getCubo().contiene(p))
+                resultado.add(rec);
+        }
+        return resultado;
+    }
+
+    @Benchmark
+    public void registrarYEliminar(Blackhole bh) {
+        ProtectionRecord rec = reserva.get(cursor++ & (reserva.size() - 1));
+        registry.registrar(rec);
+        bh.consume(registry.eliminar(rec.getUbicacionBloque()));
+    }
+
+    /** Bloque roto donde no hay protección: el caso de casi todo BlockBreakEvent. */
+    @Benchmark
+    public ProtectionRecord romperSinProteccion() {
+        Location p = siguientePunto();
+        return registry.eliminar(p.getWorld(), p.getBlockX(), p.getBlockY() + 1, p.getBlockZ());
+    }
+
+    @Benchmark
+    public ProtectionRecord romperSinProteccionStringKeys() {
+        Location p = siguientePunto();
+        return porUbicacionLegado.get(p.getWorld().getName() + ":" + p.getBlockX() + ":"
+                + (p.getBlockY() + 1) + ":" + p.getBlockZ());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<ProtectionRecord> todosPorMundo() {
+        return registry.todosPorMundo("world");
+    }
+
+    private void indexarLegado(ProtectionRecord rec) {
+        String clave = rec.clave();
+        porUbicacionLegado.put(clave, rec);
+        var cubo = rec.getCubo();
+        for (int cx = cubo.getMinX() >> 4; cx <= cubo.getMaxX() >> 4; cx++) {
+            for (int cz = cubo.getMinZ() >> 4; cz <= cubo.getMaxZ() >> 4; cz++) {
+                porChunkLegado.computeIfAbsent("world:" + cx + ":" + cz,
+                        k -> ConcurrentHashMap.newKeySet()).add(clave);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.protectium.bench;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.registry.ProtectionRegistry;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara los backends espaciales con 10k protecciones de radio hasta 256
+ * (el máximo con bypass). radioGrandes=1000000 fuerza que todo vaya a la
+ * grilla por chunk; con 64, los cubos grandes van a la grilla por región.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialBackendBenchmark {
+
+    private static final int PROTECCIONES = 10_000;
+    private static final int PUNTOS = 4096;
+
+    @Param({ "64", "1000000" })
+    public int radioGrandes;
+
+    private ProtectionRegistry registry;
+    private List<ProtectionRecord> reserva;
+    private Location[] puntos;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        World mundo = BenchSupport.mundoFalso("world");
+        registry = new ProtectionRegistry(radioGrandes);
+        for (ProtectionRecord rec : BenchSupport.protecciones(mundo, PROTECCIONES, 256, 42L)) {
+            registry.registrar(rec);
+        }
+        reserva = BenchSupport.protecciones(BenchSupport.mundoFalso("reserva"), 1024, 256, 7L);
+        puntos = BenchSupport.puntos(mundo, PROTECCIONES, PUNTOS, 1L);
+    }
+
+    @Benchmark
+    public void insertarYEliminar(Blackhole bh) {
+        ProtectionRecord rec = reserva.get(cursor++ & (reserva.size() - 1));
+        registry.registrar(rec);
+        bh.consume(registry.eliminar(rec.getUbicacionBloque()));
+    }
+
+    @Benchmark
+    public List<ProtectionRecord> consultaPunto() {
+        return registry.buscarContenedoras(puntos[cursor++ & (PUNTOS - 1)]);
+    }
+}
@@ -12,6 +12,8 @@ import java.util.stream.Collectors;
 /**
  * Comando raíz /prot. Hace dispatch a SubComandos registrados.
  * Si no hay subcomando, muestra la ayuda automática.
+ * Cada subcomando define su permiso; la ayuda y el autocompletado solo
+ * muestran los que el sender puede usar.
  */
 public final class ComandoProtectium implements CommandExecutor, TabCompleter {
 
@@ -29,7 +31,7 @@ public final class ComandoProtectium implements CommandExecutor, TabCompleter {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        if (!sender.hasPermission("protectium.admin")) {
+        if (subComandos.values().stream().noneMatch(s -> puedeUsar(sender, s))) {
             sender.sendMessage(mensajes.errorSinPermisos());
             return true;
         }
@@ -48,6 +50,11 @@ public final class ComandoProtectium implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        if (!puedeUsar(sender, sub)) {
+            sender.sendMessage(mensajes.errorSinPermisos());
+            return true;
+        }
+
         // Pasa el resto de args sin el nombre del subcomando
         String[] restArgs = Arrays.copyOfRange(args, 1, args.length);
         sub.ejecutar(sender, restArgs);
@@ -56,20 +63,19 @@ public final class ComandoProtectium implements CommandExecutor, TabCompleter {
 
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
-        if (!sender.hasPermission("protectium.admin")) return Collections.emptyList();
-
         // Primer argumento: nombres de subcomandos
         if (args.length <= 1) {
             String prefijo = args.length == 1 ? args[0].toLowerCase() : "";
-            return subComandos.keySet().stream()
-                    .filter(n -> n.startsWith(prefijo))
+            return subComandos.entrySet().stream()
+                    .filter(e -> e.getKey().startsWith(prefijo) && puedeUsar(sender, e.getValue()))
+                    .map(Map.Entry::getKey)
                     .collect(Collectors.toList());
         }
 
         // Argumentos siguientes: delega al subcomando
         String nombre = args[0].toLowerCase();
         SubComando sub = subComandos.get(nombre);
-        if (sub == null) return Collections.emptyList();
+        if (sub == null || !puedeUsar(sender, sub)) return Collections.emptyList();
 
         String[] restArgs = Arrays.copyOfRange(args, 1, args.length);
         return sub.autocompletar(sender, restArgs);
@@ -79,8 +85,13 @@ public final class ComandoProtectium implements CommandExecutor, TabCompleter {
         sender.sendMessage(mensajes.getSeparador());
         sender.sendMessage(mensajes.getPrefijo() + "§7Subcomandos disponibles:");
         for (SubComando sub : subComandos.values()) {
+            if (!puedeUsar(sender, sub)) continue;
             sender.sendMessage("§8  /prot " + sub.nombre() + "  §7— " + sub.descripcion());
         }
         sender.sendMessage(mensajes.getSeparador());
     }
+
+    private static boolean puedeUsar(CommandSender sender, SubComando sub) {
+        return sender.hasPermission(sub.permiso());
+    }
 }
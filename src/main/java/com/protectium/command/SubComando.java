@@ -1,5 +1,7 @@
 package com.protectium.command;
 
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
 
 /**
@@ -15,9 +17,26 @@ public interface SubComando {
     /** Descripción corta para la ayuda. */
     String descripcion();
 
+    /** Permiso necesario para usarlo. Por defecto, solo administradores. */
+    default String permiso() {
+        return "protectium.admin";
+    }
+
     /** Ejecuta el subcomando. Retorna false si el uso es incorrecto. */
     boolean ejecutar(CommandSender sender, String[] args);
 
+    /**
+     * Jugador por nombre, conectado o que ya entró alguna vez al servidor.
+     * Null si nunca entró. Solo mira la caché de perfiles del servidor:
+     * un nombre desconocido no dispara una búsqueda bloqueante a Mojang.
+     */
+    static OfflinePlayer jugadorConocido(String nombre) {
+        OfflinePlayer jugador = Bukkit.getOfflinePlayerIfCached(nombre);
+        if (jugador == null)
+            return null;
+        return jugador.isOnline() || jugador.hasPlayedBefore() ? jugador : null;
+    }
+
     /** Autocompletar argumentos. */
     default java.util.List<String> autocompletar(CommandSender sender, String[] args) {
         return java.util.Collections.emptyList();
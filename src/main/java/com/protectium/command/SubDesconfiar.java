@@ -0,0 +1,70 @@
+package com.protectium.command;
+
+import com.protectium.core.Mensajes;
+import com.protectium.registry.ProtectionRegistry;
+import com.protectium.storage.PersistenceManager;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * /prot desconfiar <jugador>
+ * Quita al jugador de todas las protecciones donde es miembro (no de las
+ * suyas). Pensado para jugadores baneados. Incluye las protecciones de
+ * mundos no cargados, para que el acceso no vuelva al cargarse el mundo.
+ */
+public final class SubDesconfiar implements SubComando {
+
+    private final ProtectionRegistry registry;
+    private final PersistenceManager persistencia;
+    private final Mensajes mensajes;
+
+    public SubDesconfiar(ProtectionRegistry registry, PersistenceManager persistencia, Mensajes mensajes) {
+        this.registry = registry;
+        this.persistencia = persistencia;
+        this.mensajes = mensajes;
+    }
+
+    @Override
+    public String nombre() { return "desconfiar"; }
+
+    @Override
+    public String descripcion() { return "Quita a un jugador de todas las protecciones ajenas."; }
+
+    @Override
+    public boolean ejecutar(CommandSender sender, String[] args) {
+        if (args.length < 1) {
+            sender.sendMessage(mensajes.errorUsaje("/prot desconfiar <jugador>"));
+            return false;
+        }
+
+        OfflinePlayer jugador = SubComando.jugadorConocido(args[0]);
+        if (jugador == null) {
+            sender.sendMessage(mensajes.errorJugadorNoEncontrando(args[0]));
+            return false;
+        }
+
+        int quitadas = registry.quitarMiembroDeTodas(jugador.getUniqueId())
+                + persistencia.quitarMiembroInactivas(jugador.getUniqueId());
+        sender.sendMessage(mensajes.getPrefijo() + "§7" + args[0] + " ya no es miembro de §b" + quitadas
+                + "§7 protecciones.");
+        return true;
+    }
+
+    @Override
+    public List<String> autocompletar(CommandSender sender, String[] args) {
+        if (args.length == 1) {
+            String prefijo = args[0].toLowerCase();
+            return Bukkit.getOnlinePlayers().stream()
+                    .map(Player::getName)
+                    .filter(n -> n.toLowerCase().startsWith(prefijo))
+                    .collect(Collectors.toList());
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.protectium.command;
+
+import com.protectium.core.Mensajes;
+import com.protectium.registry.CacheColumnas;
+import com.protectium.registry.ProtectionRegistry;
+import com.protectium.storage.PersistenceManager;
+import com.protectium.storage.ProgramadorGuardado;
+import com.protectium.task.ConsistencyTask;
+import com.protectium.task.PlanificadorFraccionado;
+import com.protectium.zone.PlayerZoneTracker;
+import org.bukkit.command.CommandSender;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * /prot estado
+ * Estadísticas internas: protecciones, guardado, journal, consistencia,
+ * zonas de jugadores, caché de redstone y tareas por tick.
+ * Para diagnosticar rendimiento sin herramientas externas.
+ */
+public final class SubEstado implements SubComando {
+
+    private final ProtectionRegistry registry;
+    private final PersistenceManager persistencia;
+    private final ProgramadorGuardado programador;
+    private final ConsistencyTask consistencia;
+    private final PlanificadorFraccionado planificador;
+    private final PlayerZoneTracker zonas;
+    private final CacheColumnas cacheRedstone;
+    private final Mensajes mensajes;
+
+    public SubEstado(ProtectionRegistry registry, PersistenceManager persistencia,
+            ProgramadorGuardado programador, ConsistencyTask consistencia,
+            PlanificadorFraccionado planificador, PlayerZoneTracker zonas, CacheColumnas cacheRedstone,
+            Mensajes mensajes) {
+        this.registry = registry;
+        this.persistencia = persistencia;
+        this.programador = programador;
+        this.consistencia = consistencia;
+        this.planificador = planificador;
+        this.zonas = zonas;
+        this.cacheRedstone = cacheRedstone;
+        this.mensajes = mensajes;
+    }
+
+    @Override
+    public String nombre() { return "estado"; }
+
+    @Override
+    public String descripcion() { return "Estadísticas de protecciones y guardado."; }
+
+    @Override
+    public boolean ejecutar(CommandSender sender, String[] args) {
+        sender.sendMessage(mensajes.getSeparador());
+        sender.sendMessage(mensajes.getPrefijo() + "§7Estado interno:");
+        sender.sendMessage("§8  Protecciones activas: §f" + registry.cantidad()
+                + " §8(versión " + registry.getVersion() + ")");
+        sender.sendMessage("§8  En mundos sin cargar: §f" + persistencia.getInactivas());
+
+        // --- Guardado ---
+        long ultimo = programador.getUltimoGuardadoEn();
+        if (ultimo == 0) {
+            sender.sendMessage("§8  Último guardado: §7ninguno desde el inicio");
+        } else {
+            long hace = (System.currentTimeMillis() - ultimo) / 1000;
+            sender.sendMessage(String.format("§8  Último guardado: §fhace %ds §8— §f%d KB §8en §f%.1f ms",
+                    hace, programador.getUltimosBytes() / 1024, programador.getUltimaDuracionMs()));
+            sender.sendMessage(String.format("§8  Captura en hilo principal: §f%.2f ms §8en §f%d §8ticks",
+                    programador.getUltimaCapturaMs(), programador.getUltimaCapturaTicks()));
+        }
+        sender.sendMessage("§8  Guardados: §f" + programador.getGuardados()
+                + " §8(omitidos sin cambios: §f" + programador.getOmitidos() + "§8, solicitados: §f"
+                + programador.getSolicitudes() + "§8)");
+        sender.sendMessage("§8  Journal: §f" + persistencia.getEntradasJournal() + " §8cambios sin compactar");
+
+        // --- Consistencia ---
+        sender.sendMessage("§8  Consistencia: §f" + consistencia.getVerificadas() + " §8verificadas, §f"
+                + consistencia.getEliminadas() + " §8huérfanas eliminadas");
+        sender.sendMessage("§8  Chunks en ronda: §f" + consistencia.getChunksEnRonda()
+                + " §8(revisados: §f" + consistencia.getChunksRevisados() + "§8)");
+
+        // --- Zonas ---
+        sender.sendMessage("§8  Zonas: §f" + zonas.getJugadores() + " §8jugadores, §f" + zonas.getConsultas()
+                + " §8consultas (§f" + zonas.getEvitadas() + " §8evitadas), §f" + zonas.getTransiciones()
+                + " §8cambios de zona");
+
+        // --- Redstone ---
+        sender.sendMessage(String.format("§8  Caché redstone: §f%.1f%% §8aciertos (§f%d§8/§f%d§8), §f%d §8columnas",
+                cacheRedstone.getTasaAciertos(), cacheRedstone.getAciertos(), cacheRedstone.getConsultas(),
+                cacheRedstone.getEntradas()));
+
+        // --- Planificador ---
+        sender.sendMessage(String.format("§8  Tareas por tick: §f%d §8— último §f%d µs§8, peor §f%d µs §8de §f%d µs",
+                planificador.getTareas(), planificador.getUltimoTickNanos() / 1000,
+                planificador.getMaxTickNanos() / 1000, planificador.getPresupuestoNanos() / 1000));
+        sender.sendMessage("§8  Ticks con presupuesto agotado: §f" + planificador.getTicksAgotados());
+        sender.sendMessage(mensajes.getSeparador());
+        return true;
+    }
+
+    @Override
+    public List<String> autocompletar(CommandSender sender, String[] args) {
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,35 @@
+package com.protectium.command;
+
+import com.protectium.core.Mensajes;
+import com.protectium.storage.ProgramadorGuardado;
+import org.bukkit.command.CommandSender;
+
+/**
+ * /prot guardar
+ * Pide un guardado completo. Lo hace el hilo de guardado; varias
+ * solicitudes seguidas se agrupan en una sola escritura.
+ */
+public final class SubGuardar implements SubComando {
+
+    private final ProgramadorGuardado programador;
+    private final Mensajes mensajes;
+
+    public SubGuardar(ProgramadorGuardado programador, Mensajes mensajes) {
+        this.programador = programador;
+        this.mensajes = mensajes;
+    }
+
+    @Override
+    public String nombre() { return "guardar"; }
+
+    @Override
+    public String descripcion() { return "Guarda todas las protecciones a disco."; }
+
+    @Override
+    public boolean ejecutar(CommandSender sender, String[] args) {
+        programador.solicitar();
+        sender.sendMessage(mensajes.getPrefijo() + "§7Guardado solicitado"
+                + (programador.hayCambios() ? "." : " §8(no hay cambios sin guardar)."));
+        return true;
+    }
+}
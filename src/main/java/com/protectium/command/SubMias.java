@@ -0,0 +1,42 @@
+package com.protectium.command;
+
+import com.protectium.core.Mensajes;
+import com.protectium.gui.GuiManager;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+/**
+ * /prot mias
+ * Abre el GUI con las protecciones donde el jugador tiene algún rol (las
+ * suyas y donde es miembro). No requiere permisos de administrador.
+ */
+public final class SubMias implements SubComando {
+
+    private final GuiManager guiManager;
+    private final Mensajes mensajes;
+
+    public SubMias(GuiManager guiManager, Mensajes mensajes) {
+        this.guiManager = guiManager;
+        this.mensajes = mensajes;
+    }
+
+    @Override
+    public String nombre() { return "mias"; }
+
+    @Override
+    public String descripcion() { return "Ver las protecciones donde tienes acceso (GUI)."; }
+
+    @Override
+    public String permiso() { return "protectium.mias"; }
+
+    @Override
+    public boolean ejecutar(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player jugador)) {
+            sender.sendMessage(mensajes.errorUsaje("Este comando solo puede ser usado por jugadores."));
+            return false;
+        }
+
+        guiManager.abrirMias(jugador, 0);
+        return true;
+    }
+}
@@ -0,0 +1,74 @@
+package com.protectium.command;
+
+import com.protectium.core.Mensajes;
+import com.protectium.registry.ProtectionRegistry;
+import com.protectium.storage.PersistenceManager;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * /prot transferir <de> <a>
+ * Pasa todas las protecciones de un jugador a otro. El dueño anterior deja
+ * de ser miembro de ellas. Incluye las de mundos no cargados.
+ */
+public final class SubTransferir implements SubComando {
+
+    private final ProtectionRegistry registry;
+    private final PersistenceManager persistencia;
+    private final Mensajes mensajes;
+
+    public SubTransferir(ProtectionRegistry registry, PersistenceManager persistencia, Mensajes mensajes) {
+        this.registry = registry;
+        this.persistencia = persistencia;
+        this.mensajes = mensajes;
+    }
+
+    @Override
+    public String nombre() { return "transferir"; }
+
+    @Override
+    public String descripcion() { return "Pasa todas las protecciones de un jugador a otro."; }
+
+    @Override
+    public boolean ejecutar(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(mensajes.errorUsaje("/prot transferir <de> <a>"));
+            return false;
+        }
+
+        OfflinePlayer de = SubComando.jugadorConocido(args[0]);
+        if (de == null) {
+            sender.sendMessage(mensajes.errorJugadorNoEncontrando(args[0]));
+            return false;
+        }
+        OfflinePlayer a = SubComando.jugadorConocido(args[1]);
+        if (a == null) {
+            sender.sendMessage(mensajes.errorJugadorNoEncontrando(args[1]));
+            return false;
+        }
+
+        int transferidas = registry.transferirTodas(de.getUniqueId(), a.getUniqueId())
+                + persistencia.transferirInactivas(de.getUniqueId(), a.getUniqueId());
+        sender.sendMessage(mensajes.getPrefijo() + "§b" + transferidas + "§7 protecciones pasaron de "
+                + args[0] + " a " + args[1] + ".");
+        return true;
+    }
+
+    @Override
+    public List<String> autocompletar(CommandSender sender, String[] args) {
+        if (args.length == 1 || args.length == 2) {
+            String prefijo = args[args.length - 1].toLowerCase();
+            return Bukkit.getOnlinePlayers().stream()
+                    .map(Player::getName)
+                    .filter(n -> n.toLowerCase().startsWith(prefijo))
+                    .collect(Collectors.toList());
+        }
+        return Collections.emptyList();
+    }
+}
@@ -1,8 +1,8 @@
 package com.protectium.core;
 
-import com.protectium.protection.ProtectionRecord;
 import com.protectium.protection.ProtectionType;
 import com.protectium.registry.ProtectionRegistry;
+import com.protectium.storage.PersistenceManager;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
@@ -17,9 +17,11 @@ import org.bukkit.plugin.Plugin;
 public final class LimitManager {
     
     private final Plugin plugin;
+    private final PersistenceManager persistencia;
     
-    public LimitManager(Plugin plugin) {
+    public LimitManager(Plugin plugin, PersistenceManager persistencia) {
         this.plugin = plugin;
+        this.persistencia = persistencia;
     }
     
     /**
@@ -83,12 +85,13 @@ public final class LimitManager {
     }
     
     /**
-     * Cuenta cuántas protecciones tiene el jugador actualmente.
+     * Cuenta cuántas protecciones tiene el jugador actualmente (índice por
+     * dueño del registro, sin recorrer todas), incluidas las de mundos que
+     * no están cargados: el límite es por jugador, no por mundo cargado.
      */
     public int countPlayerProtections(Player player, ProtectionRegistry registry) {
-        return (int) registry.todas().stream()
-            .filter(rec -> rec.getColocadoPor().equals(player.getUniqueId()))
-            .count();
+        return registry.cantidadPorDueno(player.getUniqueId())
+                + persistencia.getInactivasPorDueno(player.getUniqueId());
     }
     
     /**
@@ -212,6 +212,10 @@ public final class Mensajes {
         return get("gui.list-title");
     }
 
+    public String guiTituloMias() {
+        return get("gui.mine-title");
+    }
+
     public String guiTituloInfoJugador(String nombre) {
         return get("gui.player-info-title").replace("{player}", nombre);
     }
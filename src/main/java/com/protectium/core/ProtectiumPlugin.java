@@ -3,8 +3,13 @@ package com.protectium.core;
 import com.protectium.command.ComandoProtectium;
 import com.protectium.command.SubCrear;
 import com.protectium.command.SubDar;
+import com.protectium.command.SubDesconfiar;
+import com.protectium.command.SubEstado;
+import com.protectium.command.SubGuardar;
 import com.protectium.command.SubLista;
+import com.protectium.command.SubMias;
 import com.protectium.command.SubTipos;
+import com.protectium.command.SubTransferir;
 import com.protectium.command.SubRecargar;
 import com.protectium.command.SubAddShop;
 import com.protectium.command.SubTienda;
@@ -12,13 +17,22 @@ import com.protectium.fx.FxEngine;
 import com.protectium.gui.GuiManager;
 import com.protectium.item.ItemAuthority;
 import com.protectium.listener.*;
+import com.protectium.protection.ProtectionType;
+import com.protectium.registry.CacheColumnas;
+import com.protectium.registry.ProtectionPolicy;
 import com.protectium.registry.ProtectionRegistry;
 import com.protectium.storage.PersistenceManager;
+import com.protectium.storage.ProgramadorGuardado;
 import com.protectium.task.ConsistencyTask;
 import com.protectium.task.FxTickTask;
+import com.protectium.task.PlanificadorFraccionado;
+import com.protectium.zone.BossBarZona;
+import com.protectium.zone.PlayerZoneTracker;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.IOException;
+
 public final class ProtectiumPlugin extends JavaPlugin {
 
     private ProtectionRegistry registry;
@@ -28,6 +42,12 @@ public final class ProtectiumPlugin extends JavaPlugin {
     private Mensajes mensajes;
     private MessageManager messageManager;
     private PersistenceManager persistenceManager;
+    private ProgramadorGuardado programadorGuardado;
+    private ConsistencyTask consistencyTask;
+    private PlanificadorFraccionado planificador;
+    private PlayerZoneTracker zoneTracker;
+    private CacheColumnas cacheRedstone;
+    private ProtectionPolicy politica;
     private com.protectium.shop.ShopManager shopManager;
     private LimitManager limitManager;
 
@@ -54,6 +74,9 @@ public final class ProtectiumPlugin extends JavaPlugin {
     @Override
     public void onDisable() {
         guardarDatos();
+        if (persistenceManager != null) {
+            persistenceManager.cerrar();
+        }
         Bukkit.getScheduler().cancelTasks(this);
         if (registry != null) {
             registry.limpiar();
@@ -62,7 +85,8 @@ public final class ProtectiumPlugin extends JavaPlugin {
     }
 
     private void inicializarComponentes() {
-        this.registry = new ProtectionRegistry();
+        this.registry = new ProtectionRegistry(getConfig().getInt("indice-espacial.radio-grandes",
+                ProtectionRegistry.RADIO_GRANDES_POR_DEFECTO));
         String language = getConfig().getString("language", "en");
         this.mensajes = new Mensajes(this, language);
         this.messageManager = new MessageManager(this);
@@ -71,8 +95,20 @@ public final class ProtectiumPlugin extends JavaPlugin {
         this.fxEngine.setPlugin(this);
         this.guiManager = new GuiManager(registry, mensajes);
         this.persistenceManager = new PersistenceManager(this, registry);
+        this.consistencyTask = new ConsistencyTask(registry, itemAuthority, this);
+        this.zoneTracker = new PlayerZoneTracker(registry);
+        this.zoneTracker.suscribir(new BossBarZona());
+        // v2.3.1 - Zone notifications
+        this.zoneTracker.suscribir(new ListenerZoneNotify(mensajes));
+        this.registry.agregarObservador(zoneTracker);
+        this.cacheRedstone = new CacheColumnas(registry, ProtectionType.REDSTONE,
+                Math.max(1024, getConfig().getInt("redstone.cache-max", 65536)));
+        this.registry.agregarObservador(cacheRedstone);
+        this.politica = new ProtectionPolicy(registry);
+        this.planificador = new PlanificadorFraccionado(
+                Math.max(50, getConfig().getLong("planificador.presupuesto-us", 1000)) * 1000L, getLogger());
         this.shopManager = new com.protectium.shop.ShopManager(this);
-        this.limitManager = new LimitManager(this);
+        this.limitManager = new LimitManager(this, persistenceManager);
     }
 
     public com.protectium.shop.ShopManager getShopManager() {
@@ -89,12 +125,23 @@ public final class ProtectiumPlugin extends JavaPlugin {
             getLogger().severe("ERROR al cargar protecciones desde disco: " + e.getMessage());
             e.printStackTrace();
         }
+        // Se crea después de cargar: lo cargado ya está en disco y no cuenta como cambio
+        this.programadorGuardado = new ProgramadorGuardado(persistenceManager, registry, getLogger(),
+                planificador::agregar);
+        // Ráfagas de cambios: compactar antes del autoguardado si el journal crece mucho
+        persistenceManager.alLlenarseJournal(
+                Math.max(100, getConfig().getInt("almacenamiento.journal-max-entradas", 5000)),
+                programadorGuardado::solicitar);
     }
 
     private void guardarDatos() {
         if (persistenceManager != null) {
             try {
-                persistenceManager.saveAll();
+                if (programadorGuardado != null) {
+                    programadorGuardado.detener();
+                } else if (persistenceManager.saveAll() < 0) {
+                    throw new IOException("el guardado falló");
+                }
                 getLogger().info("Protecciones guardadas exitosamente.");
             } catch (Exception e) {
                 getLogger().severe("ERROR CRÍTICO al guardar protecciones en shutdown: " + e.getMessage());
@@ -115,10 +162,16 @@ public final class ProtectiumPlugin extends JavaPlugin {
         comando.registrar(new SubDar(itemAuthority, mensajes, getConfig()));
         comando.registrar(new SubCrear(itemAuthority, mensajes));
         comando.registrar(new SubLista(guiManager, mensajes));
+        comando.registrar(new SubMias(guiManager, mensajes));
+        comando.registrar(new SubDesconfiar(registry, persistenceManager, mensajes));
+        comando.registrar(new SubTransferir(registry, persistenceManager, mensajes));
         comando.registrar(new SubTipos(guiManager, mensajes));
         comando.registrar(new SubRecargar(this, mensajes, fxEngine));
         comando.registrar(new SubAddShop(this, mensajes));
         comando.registrar(new SubTienda(this, mensajes));
+        comando.registrar(new SubGuardar(programadorGuardado, mensajes));
+        comando.registrar(new SubEstado(registry, persistenceManager, programadorGuardado,
+                consistencyTask, planificador, zoneTracker, cacheRedstone, mensajes));
         getCommand("prot").setExecutor(comando);
         getCommand("prot").setTabCompleter(comando);
     }
@@ -129,51 +182,45 @@ public final class ProtectiumPlugin extends JavaPlugin {
         getServer().getPluginManager().registerEvents(
                 new ListenerRomper(registry, fxEngine, mensajes), this);
         getServer().getPluginManager().registerEvents(
-                new ListenerBloques(registry, mensajes, fxEngine, itemAuthority), this);
+                new ListenerBloques(registry, politica, mensajes, fxEngine, itemAuthority), this);
         getServer().getPluginManager().registerEvents(
                 new ListenerSpawn(registry), this);
         getServer().getPluginManager().registerEvents(
-                new ListenerEntrada(registry, fxEngine, mensajes), this);
+                new ListenerEntrada(fxEngine, mensajes), this);
         getServer().getPluginManager().registerEvents(
                 new ListenerFuego(registry), this);
         getServer().getPluginManager().registerEvents(
-                new ListenerRedstone(registry, mensajes), this);
+                new ListenerRedstone(registry, cacheRedstone, mensajes), this);
         getServer().getPluginManager().registerEvents(
-                new ListenerFlags(registry, mensajes), this);
+                new ListenerFlags(politica, mensajes), this);
         getServer().getPluginManager().registerEvents(
                 new ListenerGui(guiManager, registry, mensajes), this);
         getServer().getPluginManager().registerEvents(
                 new ListenerInventario(itemAuthority), this);
         getServer().getPluginManager().registerEvents(
                 new ListenerInteractProteccion(registry, guiManager, itemAuthority), this);
-        // v2.3.1 - Zone notifications
         getServer().getPluginManager().registerEvents(
-                new ListenerZoneNotify(registry, mensajes), this);
+                new ListenerChunks(consistencyTask), this);
+        getServer().getPluginManager().registerEvents(
+                new ListenerMundos(persistenceManager), this);
+        getServer().getPluginManager().registerEvents(zoneTracker, this);
     }
 
     private void iniciarTareas() {
         // FxTickTask - Solo UNA tarea asíncrona optimizada
         new FxTickTask(fxEngine, registry).runTaskTimerAsynchronously(this, 1L, 1L);
 
-        // Tarea de consistencia cada 60 segundos
-        new ConsistencyTask(registry, itemAuthority, this).runTaskTimer(this, 1200L, 1200L);
+        // Tareas del hilo principal repartidas con presupuesto fijo por tick:
+        // consistencia (ronda por chunks cargados), zonas afectadas por
+        // protecciones nuevas o eliminadas y las capturas del autoguardado
+        consistencyTask.encolarCargados();
+        zoneTracker.iniciar();
+        planificador.agregar(consistencyTask);
+        planificador.agregar(zoneTracker);
+        planificador.runTaskTimer(this, 1L, 1L);
 
-        // BossBar task cada 0.5 segundos
-        new com.protectium.task.BossBarTask(registry).runTaskTimer(this, 10L, 10L);
-
-        // Auto-guardado cada 5 minutos (6000 ticks) con manejo de errores
-        Bukkit.getScheduler().runTaskTimerAsynchronously(this, new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    persistenceManager.saveAll();
-                    getLogger().info(messageManager.getSystemAutosaveSuccess(registry.cantidad()));
-                } catch (Exception e) {
-                    getLogger().severe("ERROR CRÍTICO al auto-guardar protecciones: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
-        }, 6000L, 6000L);
+        // Auto-guardado: compacta el journal en el snapshot, solo si hubo cambios
+        programadorGuardado.iniciar(Math.max(30, getConfig().getLong("almacenamiento.autoguardado-segundos", 300)));
     }
 
     private void mostrarBanner() {
@@ -214,4 +261,16 @@ public final class ProtectiumPlugin extends JavaPlugin {
     public PersistenceManager getPersistenceManager() {
         return persistenceManager;
     }
+
+    public ProgramadorGuardado getProgramadorGuardado() {
+        return programadorGuardado;
+    }
+
+    public PlayerZoneTracker getZoneTracker() {
+        return zoneTracker;
+    }
+
+    public ProtectionPolicy getPolitica() {
+        return politica;
+    }
 }
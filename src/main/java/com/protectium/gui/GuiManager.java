@@ -1,6 +1,7 @@
 package com.protectium.gui;
 
 import com.protectium.core.Mensajes;
+import com.protectium.protection.ProtectionFlag;
 import com.protectium.protection.ProtectionRecord;
 import com.protectium.protection.ProtectionType;
 import com.protectium.registry.ProtectionRegistry;
@@ -227,7 +228,7 @@ public final class GuiManager {
                         "§7 Radio:     §b" + rec.getRadio() + " bloques",
                         "§7 Ubicación: §b" + loc.getBlockX() + ", " + loc.getBlockY() + ", " + loc.getBlockZ(),
                         "§7 Mundo:     §b" + loc.getWorld().getName(),
-                        "§7 Miembros:  §b" + rec.getMembers().size(),
+                        "§7 Miembros:  §b" + rec.getCantidadMiembros(),
                         "§8└─────────────────────────┘")));
 
         // Botones de acción (fila 2, centrados)
@@ -265,6 +266,59 @@ public final class GuiManager {
     // GUI Flags
     // ---------------------------------------------------------------
 
+    /** Icono, nombre y descripción de cada flag en el menú. */
+    private static final class IconoFlag {
+        final Material material;
+        final String nombre;
+        final String descripcion;
+
+        IconoFlag(Material material, String nombre, String descripcion) {
+            this.material = material;
+            this.nombre = nombre;
+            this.descripcion = descripcion;
+        }
+    }
+
+    private static final ProtectionFlag[] FLAGS = ProtectionFlag.values();
+    private static final EnumMap<ProtectionFlag, IconoFlag> ICONOS_FLAG = new EnumMap<>(ProtectionFlag.class);
+
+    static {
+        ICONOS_FLAG.put(ProtectionFlag.BLOCK_BREAK,     new IconoFlag(Material.IRON_PICKAXE,       "Romper Bloques",   "Permite romper bloques."));
+        ICONOS_FLAG.put(ProtectionFlag.BLOCK_PLACE,     new IconoFlag(Material.GRASS_BLOCK,        "Colocar Bloques",  "Permite colocar bloques."));
+        ICONOS_FLAG.put(ProtectionFlag.INTERACT,        new IconoFlag(Material.LEVER,              "Interactuar",      "Permite usar puertas, cofres, etc."));
+        ICONOS_FLAG.put(ProtectionFlag.PVP,             new IconoFlag(Material.DIAMOND_SWORD,      "PVP",              "Permite combate entre jugadores."));
+        ICONOS_FLAG.put(ProtectionFlag.EXPLOSIONS,      new IconoFlag(Material.TNT,                "Explosiones",      "Permite daño por explosiones."));
+        ICONOS_FLAG.put(ProtectionFlag.FIRE,            new IconoFlag(Material.FLINT_AND_STEEL,    "Fuego",            "Permite propagación de fuego."));
+        ICONOS_FLAG.put(ProtectionFlag.MOB_SPAWNING,    new IconoFlag(Material.SPAWNER,            "Spawn de Mobs",    "Permite aparición de mobs."));
+        ICONOS_FLAG.put(ProtectionFlag.DAMAGE,          new IconoFlag(Material.IRON_SWORD,         "Daño Entidades",   "Permite dañar animales/mobs."));
+        ICONOS_FLAG.put(ProtectionFlag.INTERACT_ENTITY, new IconoFlag(Material.VILLAGER_SPAWN_EGG, "Interactuar Ent.", "Permite interactuar con aldeanos."));
+        ICONOS_FLAG.put(ProtectionFlag.ITEM_DROP,       new IconoFlag(Material.DROPPER,            "Soltar Items",     "Permite soltar items."));
+        ICONOS_FLAG.put(ProtectionFlag.ITEM_PICKUP,     new IconoFlag(Material.HOPPER,             "Recoger Items",    "Permite recoger items."));
+    }
+
+    /** Último slot con flags: dos filas de 7 (10-16 y 19-25). */
+    private static final int ULTIMO_SLOT_FLAG = 25;
+
+    /** Slot de la flag con ese ordinal: filas de 7 desde el 10, sin bordes. */
+    private static int slotDeFlag(int ordinal) {
+        return 10 + ordinal / 7 * 9 + ordinal % 7;
+    }
+
+    /**
+     * Flag dibujada en el slot del menú de flags, o null. El clic se
+     * resuelve con el mismo orden en que abrirMenuFlags() dibuja.
+     */
+    public static ProtectionFlag flagEnSlot(int slot) {
+        for (ProtectionFlag flag : FLAGS) {
+            int slotFlag = slotDeFlag(flag.ordinal());
+            if (slotFlag > ULTIMO_SLOT_FLAG)
+                return null;
+            if (slotFlag == slot)
+                return flag;
+        }
+        return null;
+    }
+
     public void abrirMenuFlags(Player jugador, ProtectionRecord rec) {
         Inventory inv = Bukkit.createInventory(new GuiHolder(GuiTipo.FLAGS),
                 36, "§e§l⚙ §8Configurar Flags");
@@ -272,28 +326,17 @@ public final class GuiManager {
         ItemStack fondo = crearItem(Material.GRAY_STAINED_GLASS_PANE, "§8");
         for (int i = 0; i < inv.getSize(); i++) inv.setItem(i, fondo);
 
-        Object[][] flagDefs = {
-                { "block-break",      Material.IRON_PICKAXE,          "Romper Bloques",      "Permite romper bloques." },
-                { "block-place",      Material.GRASS_BLOCK,           "Colocar Bloques",     "Permite colocar bloques." },
-                { "interact",         Material.LEVER,                 "Interactuar",         "Permite usar puertas, cofres, etc." },
-                { "pvp",              Material.DIAMOND_SWORD,         "PVP",                 "Permite combate entre jugadores." },
-                { "explosions",       Material.TNT,                   "Explosiones",         "Permite daño por explosiones." },
-                { "fire",             Material.FLINT_AND_STEEL,       "Fuego",               "Permite propagación de fuego." },
-                { "mob-spawning",     Material.SPAWNER,               "Spawn de Mobs",       "Permite aparición de mobs." },
-                { "damage",           Material.IRON_SWORD,            "Daño Entidades",      "Permite dañar animales/mobs." },
-                { "interact-entity", Material.VILLAGER_SPAWN_EGG,    "Interactuar Ent.",    "Permite interactuar con aldeanos." },
-                { "item-drop",        Material.DROPPER,               "Soltar Items",        "Permite soltar items." },
-                { "item-pickup",      Material.HOPPER,                "Recoger Items",       "Permite recoger items." }
-        };
+        for (ProtectionFlag flag : FLAGS) {
+            int slot = slotDeFlag(flag.ordinal());
+            if (slot > ULTIMO_SLOT_FLAG) break;
 
-        int slot = 10;
-        for (Object[] def : flagDefs) {
-            String key    = (String) def[0];
-            Material mat  = (Material) def[1];
-            String nombre = (String) def[2];
-            String desc   = (String) def[3];
+            // Una flag nueva sin icono propio se muestra igual, con su clave
+            IconoFlag icono = ICONOS_FLAG.get(flag);
+            Material mat  = icono != null ? icono.material : Material.PAPER;
+            String nombre = icono != null ? icono.nombre : flag.getClave();
+            String desc   = icono != null ? icono.descripcion : "";
 
-            boolean valor = rec.getFlag(key, false);
+            boolean valor = rec.getFlag(flag);
 
             // Color según estado: verde si permitido, rojo si denegado
             Material iconMat = valor ? Material.LIME_STAINED_GLASS_PANE : Material.RED_STAINED_GLASS_PANE;
@@ -306,10 +349,6 @@ public final class GuiManager {
                             "§7Estado: " + (valor ? "§a✔ Permitido" : "§c✖ Denegado"),
                             "",
                             "§8▶ §fClick para cambiar")));
-
-            slot++;
-            if (slot % 9 == 8) slot += 2; // saltar bordes
-            if (slot > 25) break;
         }
 
         // Botón volver
@@ -335,7 +374,7 @@ public final class GuiManager {
         for (int i = 0; i < inv.getSize(); i++) inv.setItem(i, fondo);
 
         inv.setItem(4, crearItemConLore(Material.PLAYER_HEAD, "§a§lMiembros",
-                List.of("§7Total: §a" + rec.getMembers().size())));
+                List.of("§7Total: §a" + rec.getCantidadMiembros())));
 
         Map<UUID, ProtectionRecord.MemberRole> miembros = rec.getMembers();
         int slot = 10;
@@ -388,13 +427,26 @@ public final class GuiManager {
     }
 
     public void abrirLista(Player jugador, int pagina) {
-        List<ProtectionRecord> todas = registry.todas();
+        abrirLista(jugador, pagina, GuiTipo.LISTA, mensajes.guiTituloLista());
+    }
+
+    /** Lista paginada de las protecciones donde el jugador tiene algún rol. */
+    public void abrirMias(Player jugador, int pagina) {
+        abrirLista(jugador, pagina, GuiTipo.MIAS, mensajes.guiTituloMias());
+    }
+
+    /** Protecciones que muestra cada lista, en el orden de sus slots. */
+    public List<ProtectionRecord> contenidoLista(Player jugador, GuiTipo tipo) {
+        return tipo == GuiTipo.MIAS ? registry.todasPorMiembro(jugador.getUniqueId()) : registry.todas();
+    }
+
+    private void abrirLista(Player jugador, int pagina, GuiTipo tipo, String titulo) {
+        List<ProtectionRecord> todas = contenidoLista(jugador, tipo);
         int porPagina = 28;
         int totalPaginas = Math.max(1, (int) Math.ceil((double) todas.size() / porPagina));
         pagina = Math.max(0, Math.min(pagina, totalPaginas - 1));
 
-        Inventory inv = Bukkit.createInventory(new GuiHolder(GuiTipo.LISTA), 54,
-                mensajes.guiTituloLista());
+        Inventory inv = Bukkit.createInventory(new GuiHolder(tipo), 54, titulo);
 
         ItemStack fondo = crearItem(Material.GRAY_STAINED_GLASS_PANE, "§8");
         for (int i = 0; i < inv.getSize(); i++) inv.setItem(i, fondo);
@@ -418,7 +470,7 @@ public final class GuiManager {
             inv.setItem(53, crearItemConLore(Material.ARROW, "§a§l► Siguiente", List.of()));
         inv.setItem(49, crearItemConLore(Material.BARRIER, "§c§l✕ Cerrar", List.of()));
 
-        GuiContext ctx = new GuiContext(GuiTipo.LISTA);
+        GuiContext ctx = new GuiContext(tipo);
         ctx.pagina = pagina;
         contextos.put(jugador.getUniqueId(), ctx);
 
@@ -7,6 +7,7 @@ package com.protectium.gui;
 public enum GuiTipo {
     PRINCIPAL, // Menú principal con estadísticas
     LISTA, // Lista paginada de protecciones
+    MIAS, // Lista paginada de las protecciones donde el jugador es miembro
     TIPOS, // Lista de tipos disponibles
     DETALLE, // Detalle de una protección individual
     MENU_PROTECCION, // Menú de gestión de protección específica
@@ -3,18 +3,24 @@ package com.protectium.listener;
 import com.protectium.core.Mensajes;
 import com.protectium.fx.FxEngine;
 import com.protectium.item.ItemAuthority;
+import com.protectium.protection.AccionProtegida;
 import com.protectium.protection.ProtectionRecord;
 import com.protectium.protection.ProtectionType;
+import com.protectium.registry.ProtectionPolicy;
 import com.protectium.registry.ProtectionRegistry;
 import org.bukkit.Location;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Protección tipo AREA: bloquea romper, colocar, incendiar bloques
@@ -24,6 +30,7 @@ import java.util.List;
  * - Los miembros con permiso de interacción pueden modificar bloques
  * - Los dueños y moderadores siempre pueden modificar
  * - Los jugadores con bypass ignoran protecciones
+ * Quién puede qué lo decide ProtectionPolicy.
  *
  * Cuando bloquea un intento, emite efecto visual + sonoro en el punto
  * donde el jugador intentó actuar, así hay feedback inmediato.
@@ -31,13 +38,15 @@ import java.util.List;
 public final class ListenerBloques implements Listener {
 
     private final ProtectionRegistry registry;
+    private final ProtectionPolicy politica;
     private final Mensajes mensajes;
     private final FxEngine fxEngine;
     private final ItemAuthority itemAuthority;
 
-    public ListenerBloques(ProtectionRegistry registry, Mensajes mensajes,
+    public ListenerBloques(ProtectionRegistry registry, ProtectionPolicy politica, Mensajes mensajes,
             FxEngine fxEngine, ItemAuthority itemAuthority) {
         this.registry = registry;
+        this.politica = politica;
         this.mensajes = mensajes;
         this.fxEngine = fxEngine;
         this.itemAuthority = itemAuthority;
@@ -53,37 +62,22 @@ public final class ListenerBloques implements Listener {
             return;
         Player player = event.getPlayer();
 
-        if (player.hasPermission("protectium.bypass"))
+        if (player.hasPermission(ProtectionPolicy.PERMISO_BYPASS))
             return;
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.AREA)
-                continue;
-
-            // No bloquear romper el propio bloque de protección (eso lo maneja
-            // ListenerRomper)
-            if (rec.getUbicacionBloque().equals(event.getBlock().getLocation()))
-                continue;
-
-            // Verificar si el jugador es miembro con permisos
-            if (rec.hasInteractPermission(player.getUniqueId()))
-                continue;
-
-            // Verificar flag block-break
-            if (!rec.getFlag("block-break", true))
-                continue;
+        Block bloque = event.getBlock();
+        ProtectionRecord rec = politica.impedidaPor(player.getUniqueId(), AccionProtegida.ROMPER,
+                bloque.getWorld(), bloque.getX(), bloque.getY(), bloque.getZ());
+        if (rec == null)
+            return;
 
-            // --- Bloquear ---
-            event.setCancelled(true);
-            player.sendMessage(mensajes.bloqueoPorProteccion("Área Protegida"));
+        // --- Bloquear ---
+        event.setCancelled(true);
+        player.sendMessage(mensajes.bloqueoPorProteccion("Área Protegida"));
 
-            // --- Efecto visual + sonoro en el punto donde intentó romper ---
-            Location punto = event.getBlock().getLocation().clone().add(0.5, 0.5, 0.5);
-            fxEngine.onReboteBloqueo(punto, rec);
-            return;
-        }
+        // --- Efecto visual + sonoro en el punto donde intentó romper ---
+        Location punto = bloque.getLocation().add(0.5, 0.5, 0.5);
+        fxEngine.onReboteBloqueo(punto, rec);
     }
 
     // ---------------------------------------------------------------
@@ -96,7 +90,7 @@ public final class ListenerBloques implements Listener {
             return;
         Player player = event.getPlayer();
 
-        if (player.hasPermission("protectium.bypass"))
+        if (player.hasPermission(ProtectionPolicy.PERMISO_BYPASS))
             return;
 
         // Si el ítem en la mano es un ítem de protección autorizado, dejarlo pasar
@@ -104,27 +98,17 @@ public final class ListenerBloques implements Listener {
         if (itemAuthority.esItemAutorizado(itemEnMano))
             return;
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.AREA)
-                continue;
-
-            // Verificar si el jugador es miembro con permisos
-            if (rec.hasInteractPermission(player.getUniqueId()))
-                continue;
-
-            // Verificar flag block-place
-            if (!rec.getFlag("block-place", true))
-                continue;
+        Block bloque = event.getBlock();
+        ProtectionRecord rec = politica.impedidaPor(player.getUniqueId(), AccionProtegida.COLOCAR,
+                bloque.getWorld(), bloque.getX(), bloque.getY(), bloque.getZ());
+        if (rec == null)
+            return;
 
-            event.setCancelled(true);
-            player.sendMessage(mensajes.bloqueoPorProteccion("Área Protegida"));
+        event.setCancelled(true);
+        player.sendMessage(mensajes.bloqueoPorProteccion("Área Protegida"));
 
-            Location punto = event.getBlock().getLocation().clone().add(0.5, 0.5, 0.5);
-            fxEngine.onReboteBloqueo(punto, rec);
-            return;
-        }
+        Location punto = bloque.getLocation().add(0.5, 0.5, 0.5);
+        fxEngine.onReboteBloqueo(punto, rec);
     }
 
     // ---------------------------------------------------------------
@@ -136,19 +120,9 @@ public final class ListenerBloques implements Listener {
         if (event.isCancelled())
             return;
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.AREA)
-                continue;
-
-            // Si tiene flag fire deshabilitado, permitir fuego
-            if (!rec.getFlag("fire", true))
-                continue;
-
+        // Si tiene flag fire deshabilitado, permitir fuego
+        if (!permitido(AccionProtegida.FUEGO, event.getBlock()))
             event.setCancelled(true);
-            return;
-        }
     }
 
     // ---------------------------------------------------------------
@@ -160,16 +134,8 @@ public final class ListenerBloques implements Listener {
         if (event.isCancelled())
             return;
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.AREA)
-                continue;
-            if (!rec.getFlag("fire", true))
-                continue;
+        if (!permitido(AccionProtegida.FUEGO, event.getBlock()))
             event.setCancelled(true);
-            return;
-        }
     }
 
     // ---------------------------------------------------------------
@@ -181,14 +147,9 @@ public final class ListenerBloques implements Listener {
         if (event.isCancelled())
             return;
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.AREA)
-                continue;
+        Block bloque = event.getBlock();
+        if (registry.hayContenedora(bloque.getWorld(), bloque.getX(), bloque.getZ(), ProtectionType.AREA))
             event.setCancelled(true);
-            return;
-        }
     }
 
     // ---------------------------------------------------------------
@@ -201,15 +162,16 @@ public final class ListenerBloques implements Listener {
             return;
 
         // Remover bloques protegidos de la lista de bloques afectados
-        event.blockList().removeIf(block -> {
-            List<ProtectionRecord> recs = registry.buscarContenedoras(block.getLocation());
-            for (ProtectionRecord rec : recs) {
-                if (rec.getTipo() == ProtectionType.AREA && rec.getFlag("explosions", true)) {
-                    return true;
-                }
-            }
-            return false;
-        });
+        quitarProtegidos(event.blockList(), r -> r.impide(AccionProtegida.EXPLOSION));
+    }
+
+    /** Creepers, TNT encendida, cristales del End, wither... */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onExplosionEntidad(EntityExplodeEvent event) {
+        if (event.isCancelled())
+            return;
+
+        quitarProtegidos(event.blockList(), r -> r.impide(AccionProtegida.EXPLOSION));
     }
 
     // ---------------------------------------------------------------
@@ -221,15 +183,8 @@ public final class ListenerBloques implements Listener {
         if (event.isCancelled())
             return;
 
-        for (org.bukkit.block.Block bloque : event.getBlocks()) {
-            List<ProtectionRecord> contenedoras = registry.buscarContenedoras(bloque.getLocation());
-            for (ProtectionRecord rec : contenedoras) {
-                if (rec.getTipo() != ProtectionType.AREA)
-                    continue;
-                event.setCancelled(true);
-                return;
-            }
-        }
+        if (algunoProtegido(event.getBlocks()))
+            event.setCancelled(true);
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -237,14 +192,63 @@ public final class ListenerBloques implements Listener {
         if (event.isCancelled())
             return;
 
-        for (org.bukkit.block.Block bloque : event.getBlocks()) {
-            List<ProtectionRecord> contenedoras = registry.buscarContenedoras(bloque.getLocation());
-            for (ProtectionRecord rec : contenedoras) {
-                if (rec.getTipo() != ProtectionType.AREA)
-                    continue;
-                event.setCancelled(true);
-                return;
-            }
+        if (algunoProtegido(event.getBlocks()))
+            event.setCancelled(true);
+    }
+
+    // ---------------------------------------------------------------
+    // Utilidades privadas
+    // ---------------------------------------------------------------
+
+    private boolean permitido(AccionProtegida accion, Block bloque) {
+        return politica.isAllowed(accion, bloque.getWorld(), bloque.getX(), bloque.getY(), bloque.getZ());
+    }
+
+    /**
+     * Quita de la lista los bloques dentro de una protección AREA que cumpla
+     * el filtro. Una sola consulta al registro por la caja de todos los
+     * bloques; después cada bloque se compara contra esas pocas protecciones.
+     */
+    private void quitarProtegidos(List<Block> bloques, Predicate<ProtectionRecord> filtro) {
+        List<ProtectionRecord> cercanas = protegidasEnCaja(bloques, filtro);
+        if (cercanas.isEmpty())
+            return;
+        bloques.removeIf(bloque -> contieneAlguna(cercanas, bloque));
+    }
+
+    /** ¿Algún bloque de la lista está dentro de una protección AREA? */
+    private boolean algunoProtegido(List<Block> bloques) {
+        List<ProtectionRecord> cercanas = protegidasEnCaja(bloques, null);
+        if (cercanas.isEmpty())
+            return false;
+        for (Block bloque : bloques) {
+            if (contieneAlguna(cercanas, bloque))
+                return true;
+        }
+        return false;
+    }
+
+    /** Protecciones AREA que tocan la caja X/Z de los bloques (todos del mismo mundo). */
+    private List<ProtectionRecord> protegidasEnCaja(List<Block> bloques, Predicate<ProtectionRecord> filtro) {
+        if (bloques.isEmpty())
+            return Collections.emptyList();
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (Block bloque : bloques) {
+            minX = Math.min(minX, bloque.getX());
+            maxX = Math.max(maxX, bloque.getX());
+            minZ = Math.min(minZ, bloque.getZ());
+            maxZ = Math.max(maxZ, bloque.getZ());
+        }
+        return registry.buscarEnArea(bloques.get(0).getWorld(), minX, minZ, maxX, maxZ,
+                ProtectionType.AREA, filtro);
+    }
+
+    private static boolean contieneAlguna(List<ProtectionRecord> protecciones, Block bloque) {
+        for (ProtectionRecord rec : protecciones) {
+            if (rec.getCubo().contieneColumna(bloque.getX(), bloque.getZ()))
+                return true;
         }
+        return false;
     }
 }
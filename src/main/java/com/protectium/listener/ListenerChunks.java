@@ -0,0 +1,25 @@
+package com.protectium.listener;
+
+import com.protectium.task.ConsistencyTask;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+
+/**
+ * Verifica las protecciones de cada chunk cuando el servidor lo carga,
+ * en vez de forzar la carga de chunks para revisarlas.
+ */
+public final class ListenerChunks implements Listener {
+
+    private final ConsistencyTask consistencia;
+
+    public ListenerChunks(ConsistencyTask consistencia) {
+        this.consistencia = consistencia;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCargarChunk(ChunkLoadEvent event) {
+        consistencia.alCargarChunk(event.getChunk());
+    }
+}
@@ -16,8 +16,6 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockPlaceEvent;
 
-import java.util.List;
-
 /**
  * El momento crítico: cuando un jugador coloca un bloque.
  * Si el ítem es un ítem autorizado → nace la protección.
@@ -124,16 +122,16 @@ public final class ListenerColocar implements Listener {
         // VALIDACIÓN 5: ¿Hay overlapping con otras protecciones del mismo tipo?
         // (Opcional - configurable)
         // ═══════════════════════════════════════════════════════════════════
-        List<ProtectionRecord> nearby = registry.buscarContenedoras(ubicacion);
-        for (ProtectionRecord rec : nearby) {
-            if (rec.getTipo() == tipo && !rec.getColocadoPor().equals(player.getUniqueId())) {
-                // Hay overlap con otra protección del mismo tipo de otro jugador
-                if (!player.hasPermission("protectium.bypass")) {
-                    event.setCancelled(true);
-                    player.sendMessage(mensajes.getPrefijoError() + 
-                        "§cNo puedes colocar protecciones superpuestas con otras de este tipo.");
-                    return;
-                }
+        ProtectionRecord ajena = registry.primeraContenedora(ubicacion.getWorld(),
+                ubicacion.getBlockX(), ubicacion.getBlockZ(), tipo,
+                rec -> !rec.getColocadoPor().equals(player.getUniqueId()));
+        if (ajena != null) {
+            // Hay overlap con otra protección del mismo tipo de otro jugador
+            if (!player.hasPermission("protectium.bypass")) {
+                event.setCancelled(true);
+                player.sendMessage(mensajes.getPrefijoError() + 
+                    "§cNo puedes colocar protecciones superpuestas con otras de este tipo.");
+                return;
             }
         }
 
@@ -167,21 +165,7 @@ public final class ListenerColocar implements Listener {
                 ubicacion.getWorld().getName()
             ));
 
-            // Auto-save async para prevenir pérdida de datos
-            org.bukkit.Bukkit.getScheduler().runTaskAsynchronously(
-                    org.bukkit.plugin.java.JavaPlugin.getProvidingPlugin(ListenerColocar.class),
-                    () -> {
-                        try {
-                            ((ProtectiumPlugin) org.bukkit.plugin.java.JavaPlugin
-                                    .getProvidingPlugin(ListenerColocar.class))
-                                    .getPersistenceManager().saveAll();
-                        } catch (Exception e) {
-                            ((ProtectiumPlugin) org.bukkit.plugin.java.JavaPlugin
-                                    .getProvidingPlugin(ListenerColocar.class))
-                                    .getLogger().warning("Error en auto-save: " + e.getMessage());
-                        }
-                    });
-
+            // Sin guardado completo: el journal de persistencia ya anotó el registro
         } catch (Exception e) {
             // Error crítico al crear protección
             event.setCancelled(true);
@@ -1,8 +1,8 @@
 package com.protectium.listener;
 
 import com.protectium.core.Mensajes;
-import com.protectium.protection.ProtectionRecord;
-import com.protectium.registry.ProtectionRegistry;
+import com.protectium.protection.AccionProtegida;
+import com.protectium.registry.ProtectionPolicy;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -12,22 +12,21 @@ import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 
-import java.util.List;
-
 /**
  * Listener para las nuevas Flags V3:
  * - damage: Dañar entidades (animales, mobs, etc - NO PVP que va separado)
  * - interact-entity: Interactuar con aldeanos, marcos, armor stands
  * - item-drop: Soltar items
  * - item-pickup: Recoger items
+ * La decisión (flags, miembros, superposición) la toma ProtectionPolicy.
  */
 public final class ListenerFlags implements Listener {
 
-    private final ProtectionRegistry registry;
+    private final ProtectionPolicy politica;
     private final Mensajes mensajes;
 
-    public ListenerFlags(ProtectionRegistry registry, Mensajes mensajes) {
-        this.registry = registry;
+    public ListenerFlags(ProtectionPolicy politica, Mensajes mensajes) {
+        this.politica = politica;
         this.mensajes = mensajes;
     }
 
@@ -42,22 +41,10 @@ public final class ListenerFlags implements Listener {
         if (event.getEntity() instanceof Player)
             return; // PVP se maneja aparte o en otro flag check si se quiere unificar
 
-        if (player.hasPermission("protectium.bypass"))
-            return;
-
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getEntity().getLocation());
-        for (ProtectionRecord rec : contenedoras) {
-            // Si el jugador TIENE PERMISO de interacción en la protección, puede dañar
-            // (e.g. matar vacas)
-            if (rec.hasInteractPermission(player.getUniqueId()))
-                continue;
-
-            // flag 'damage': true = permitido, false = denegado
-            if (!rec.getFlag("damage", false)) {
-                event.setCancelled(true);
-                player.sendMessage(mensajes.bloqueoPorProteccion("Dañar Entidades"));
-                return;
-            }
+        // Los miembros con permiso de interacción pueden dañar (e.g. matar vacas)
+        if (!politica.isAllowed(player, AccionProtegida.DANAR_ENTIDAD, event.getEntity().getLocation())) {
+            event.setCancelled(true);
+            player.sendMessage(mensajes.bloqueoPorProteccion("Dañar Entidades"));
         }
     }
 
@@ -67,20 +54,9 @@ public final class ListenerFlags implements Listener {
     @EventHandler(priority = EventPriority.HIGH)
     public void onEntityInteract(PlayerInteractEntityEvent event) {
         Player player = event.getPlayer();
-        if (player.hasPermission("protectium.bypass"))
-            return;
-
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getRightClicked().getLocation());
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.hasInteractPermission(player.getUniqueId()))
-                continue;
-
-            // flag 'interact-entity'
-            if (!rec.getFlag("interact-entity", true)) {
-                event.setCancelled(true);
-                player.sendMessage(mensajes.bloqueoPorProteccion("Interactuar Entidad"));
-                return;
-            }
+        if (!politica.isAllowed(player, AccionProtegida.INTERACTUAR_ENTIDAD, event.getRightClicked().getLocation())) {
+            event.setCancelled(true);
+            player.sendMessage(mensajes.bloqueoPorProteccion("Interactuar Entidad"));
         }
     }
 
@@ -90,23 +66,10 @@ public final class ListenerFlags implements Listener {
     @EventHandler(priority = EventPriority.HIGH)
     public void onItemDrop(PlayerDropItemEvent event) {
         Player player = event.getPlayer();
-        if (player.hasPermission("protectium.bypass"))
-            return;
-
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(player.getLocation());
-        for (ProtectionRecord rec : contenedoras) {
-            // Drops suelen permitirse por defecto, pero si flag item-drop es false, se
-            // prohíbe.
-            // Aquí asumimos que si NO tienes permiso, dependes del flag.
-            // Si TIENES permiso (miembro), puedes dropear siempre.
-            if (rec.isMember(player.getUniqueId()))
-                continue;
-
-            if (!rec.getFlag("item-drop", true)) {
-                event.setCancelled(true);
-                player.sendMessage(mensajes.bloqueoPorProteccion("Soltar Items"));
-                return;
-            }
+        // Cualquier miembro (incluso visitante) puede soltar siempre
+        if (!politica.isAllowed(player, AccionProtegida.SOLTAR_ITEM, player.getLocation())) {
+            event.setCancelled(true);
+            player.sendMessage(mensajes.bloqueoPorProteccion("Soltar Items"));
         }
     }
 
@@ -117,19 +80,9 @@ public final class ListenerFlags implements Listener {
     public void onItemPickup(EntityPickupItemEvent event) {
         if (!(event.getEntity() instanceof Player player))
             return;
-        if (player.hasPermission("protectium.bypass"))
-            return;
-
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getItem().getLocation());
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.isMember(player.getUniqueId()))
-                continue;
-
-            if (!rec.getFlag("item-pickup", true)) {
-                event.setCancelled(true);
-                // No mandamos mensaje en pickup para no spamear
-                return;
-            }
+        if (!politica.isAllowed(player, AccionProtegida.RECOGER_ITEM, event.getItem().getLocation())) {
+            event.setCancelled(true);
+            // No mandamos mensaje en pickup para no spamear
         }
     }
 }
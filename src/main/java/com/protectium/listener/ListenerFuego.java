@@ -1,17 +1,15 @@
 package com.protectium.listener;
 
-import com.protectium.protection.ProtectionRecord;
 import com.protectium.protection.ProtectionType;
 import com.protectium.registry.ProtectionRegistry;
 import org.bukkit.Material;
+import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockIgniteEvent;
 import org.bukkit.event.block.BlockSpreadEvent;
 
-import java.util.List;
-
 /**
  * Protección tipo FUEGO: bloquea la propagación de fuego
  * y el flujo de lava dentro de cualquier cubo de tipo FUEGO activo.
@@ -39,14 +37,9 @@ public final class ListenerFuego implements Listener {
             return;
         }
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.FUEGO)
-                continue;
+        Block bloque = event.getBlock();
+        if (registry.hayContenedora(bloque.getWorld(), bloque.getX(), bloque.getZ(), ProtectionType.FUEGO))
             event.setCancelled(true);
-            return;
-        }
     }
 
     // ---------------------------------------------------------------
@@ -58,13 +51,8 @@ public final class ListenerFuego implements Listener {
         if (event.isCancelled())
             return;
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.FUEGO)
-                continue;
+        Block bloque = event.getBlock();
+        if (registry.hayContenedora(bloque.getWorld(), bloque.getX(), bloque.getZ(), ProtectionType.FUEGO))
             event.setCancelled(true);
-            return;
-        }
     }
 }
@@ -4,6 +4,7 @@ import com.protectium.core.Mensajes;
 import com.protectium.gui.GuiHolder;
 import com.protectium.gui.GuiManager;
 import com.protectium.gui.GuiTipo;
+import com.protectium.protection.ProtectionFlag;
 import com.protectium.protection.ProtectionRecord;
 import com.protectium.registry.ProtectionRegistry;
 import org.bukkit.Location;
@@ -33,11 +34,6 @@ public final class ListenerGui implements Listener {
     private final ProtectionRegistry registry;
     private final Mensajes mensajes;
 
-    private static final String[] FLAG_KEYS = {
-            "block-break", "block-place", "interact", "pvp", "explosions", "fire", "mob-spawning",
-            "damage", "interact-entity", "item-drop", "item-pickup"
-    };
-
     public ListenerGui(GuiManager guiManager, ProtectionRegistry registry, Mensajes mensajes) {
         this.guiManager = guiManager;
         this.registry = registry;
@@ -64,7 +60,7 @@ public final class ListenerGui implements Listener {
 
         switch (holder.getTipo()) {
             case PRINCIPAL -> handlePrincipal(jugador, slot);
-            case LISTA -> handleLista(jugador, slot, ctx);
+            case LISTA, MIAS -> handleLista(jugador, slot, ctx, holder.getTipo());
             case TIPOS -> {
             }
             case DETALLE -> handleDetalle(jugador, slot, holder);
@@ -90,15 +86,16 @@ public final class ListenerGui implements Listener {
         }
     }
 
-    private void handleLista(Player jugador, int slot, GuiManager.GuiContext ctx) {
+    private void handleLista(Player jugador, int slot, GuiManager.GuiContext ctx, GuiTipo tipo) {
         int pagina = ctx != null ? ctx.pagina : 0;
 
-        if (slot == 45) {
-            guiManager.abrirLista(jugador, pagina - 1);
-            return;
-        }
-        if (slot == 53) {
-            guiManager.abrirLista(jugador, pagina + 1);
+        if (slot == 45 || slot == 53) {
+            int destino = slot == 45 ? pagina - 1 : pagina + 1;
+            if (tipo == GuiTipo.MIAS) {
+                guiManager.abrirMias(jugador, destino);
+            } else {
+                guiManager.abrirLista(jugador, destino);
+            }
             return;
         }
         if (slot == 49) {
@@ -112,7 +109,7 @@ public final class ListenerGui implements Listener {
             if (col < 1 || col > 7 || fila < 1 || fila > 4)
                 return;
 
-            List<ProtectionRecord> todas = registry.todas();
+            List<ProtectionRecord> todas = guiManager.contenidoLista(jugador, tipo);
             int porPagina = 28;
             int inicio = pagina * porPagina;
             int indexRelativo = (fila - 1) * 7 + (col - 1);
@@ -150,6 +147,10 @@ public final class ListenerGui implements Listener {
             case 20 -> guiManager.abrirMenuFlags(jugador, rec);
             case 22 -> guiManager.abrirMenuMiembros(jugador, rec);
             case 24 -> {
+                if (!rec.isOwner(jugador.getUniqueId()) && !jugador.hasPermission("protectium.admin")) {
+                    jugador.sendMessage(mensajes.errorSinPermisos());
+                    return;
+                }
                 Location loc = rec.getUbicacionBloque().clone().add(0.5, 1, 0.5);
                 jugador.teleport(loc);
                 jugador.closeInventory();
@@ -173,17 +174,6 @@ public final class ListenerGui implements Listener {
 
                 jugador.sendMessage(mensajes.exitoProteccionBorrada());
                 jugador.closeInventory();
-
-                org.bukkit.Bukkit.getScheduler().runTaskAsynchronously(
-                        org.bukkit.plugin.java.JavaPlugin.getProvidingPlugin(ListenerGui.class),
-                        () -> {
-                            try {
-                                ((com.protectium.core.ProtectiumPlugin) org.bukkit.plugin.java.JavaPlugin
-                                        .getProvidingPlugin(ListenerGui.class))
-                                        .getPersistenceManager().saveAll();
-                            } catch (Exception ignored) {
-                            }
-                        });
             }
             case 44 -> jugador.closeInventory();
         }
@@ -204,19 +194,11 @@ public final class ListenerGui implements Listener {
             return;
         }
 
-        // Reconstruir mapeo slot→flag exactamente como GuiManager lo coloca
-        int currentSlot = 10;
-        for (String key : FLAG_KEYS) {
-            if (currentSlot == slot) {
-                boolean actual = rec.getFlag(key, false);
-                rec.setFlag(key, !actual);
-                guiManager.abrirMenuFlags(jugador, rec);
-                return;
-            }
-            currentSlot++;
-            if (currentSlot % 9 == 8)
-                currentSlot += 2;
-        }
+        ProtectionFlag flag = GuiManager.flagEnSlot(slot);
+        if (flag == null)
+            return;
+        registry.cambiarFlag(rec, flag.getClave(), !rec.getFlag(flag));
+        guiManager.abrirMenuFlags(jugador, rec);
     }
 
     private void handleMiembros(Player jugador, int slot, GuiManager.GuiContext ctx, InventoryClickEvent event) {
@@ -245,7 +227,7 @@ public final class ListenerGui implements Listener {
             for (UUID memberId : miembros.keySet()) {
                 if (slot == currentSlot) {
                     if (!rec.isOwner(memberId)) {
-                        rec.removeMember(memberId);
+                        registry.quitarMiembro(rec, memberId);
                         guiManager.abrirMenuMiembros(jugador, rec);
                     } else {
                         jugador.sendMessage(mensajes.getPrefijoError() + "§cNo se puede remover al dueño.");
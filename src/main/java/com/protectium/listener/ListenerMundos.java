@@ -0,0 +1,31 @@
+package com.protectium.listener;
+
+import com.protectium.storage.PersistenceManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Mundos que se cargan o descargan con el servidor en marcha: sus
+ * protecciones entran al registro o vuelven a reposo.
+ */
+public final class ListenerMundos implements Listener {
+
+    private final PersistenceManager persistenceManager;
+
+    public ListenerMundos(PersistenceManager persistenceManager) {
+        this.persistenceManager = persistenceManager;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCargarMundo(WorldLoadEvent event) {
+        persistenceManager.activarMundo(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDescargarMundo(WorldUnloadEvent event) {
+        persistenceManager.desactivarMundo(event.getWorld());
+    }
+}
@@ -1,10 +1,11 @@
 package com.protectium.listener;
 
 import com.protectium.core.Mensajes;
-import com.protectium.protection.ProtectionRecord;
 import com.protectium.protection.ProtectionType;
+import com.protectium.registry.CacheColumnas;
 import com.protectium.registry.ProtectionRegistry;
 import org.bukkit.Material;
+import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -12,7 +13,6 @@ import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockRedstoneEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 
-import java.util.List;
 import java.util.Set;
 
 /**
@@ -21,11 +21,15 @@ import java.util.Set;
  * - Botones
  * - Placas de presión (en forma indirecta, via BlockRedstone)
  * - Cambios de señal redstone general
+ *
+ * Los cambios de señal llegan miles de veces por segundo desde las mismas
+ * posiciones (relojes, granjas): se deciden con una CacheColumnas.
  */
 public final class ListenerRedstone implements Listener {
 
     private final ProtectionRegistry registry;
     private final Mensajes mensajes;
+    private final CacheColumnas cacheSenal;
 
     // Materiales que son "activadores" de redstone
     private static final Set<Material> ACTIVADORES = Set.of(
@@ -35,8 +39,9 @@ public final class ListenerRedstone implements Listener {
             Material.MANGROVE_BUTTON, Material.BAMBOO_BUTTON, Material.CHERRY_BUTTON,
             Material.STONE_BUTTON, Material.POLISHED_BLACKSTONE_BUTTON);
 
-    public ListenerRedstone(ProtectionRegistry registry, Mensajes mensajes) {
+    public ListenerRedstone(ProtectionRegistry registry, CacheColumnas cacheSenal, Mensajes mensajes) {
         this.registry = registry;
+        this.cacheSenal = cacheSenal;
         this.mensajes = mensajes;
     }
 
@@ -61,17 +66,12 @@ public final class ListenerRedstone implements Listener {
         if (event.getPlayer().hasPermission("protectium.bypass"))
             return;
 
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(
-                event.getClickedBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.REDSTONE)
-                continue;
-
-            event.setCancelled(true);
-            event.getPlayer().sendMessage(mensajes.bloqueoPorProteccion("Zona Sin Redstone"));
+        Block bloque = event.getClickedBlock();
+        if (!registry.hayContenedora(bloque.getWorld(), bloque.getX(), bloque.getZ(), ProtectionType.REDSTONE))
             return;
-        }
+
+        event.setCancelled(true);
+        event.getPlayer().sendMessage(mensajes.bloqueoPorProteccion("Zona Sin Redstone"));
     }
 
     // ---------------------------------------------------------------
@@ -82,15 +82,10 @@ public final class ListenerRedstone implements Listener {
     public void onRedstone(BlockRedstoneEvent event) {
         // BlockRedstoneEvent no tiene isCancelled directo,
         // pero podemos igualar la señal nueva a la antigua para "cancelarlo"
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(event.getBlock().getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.REDSTONE)
-                continue;
-
+        Block bloque = event.getBlock();
+        if (cacheSenal.hayContenedora(bloque.getWorld(), bloque.getX(), bloque.getZ())) {
             // "Cancelar" igualando la señal nueva a la antigua
             event.setNewCurrent(event.getOldCurrent());
-            return;
         }
     }
 }
@@ -4,6 +4,7 @@ import com.protectium.core.Mensajes;
 import com.protectium.fx.FxEngine;
 import com.protectium.protection.ProtectionRecord;
 import com.protectium.registry.ProtectionRegistry;
+import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
@@ -30,8 +31,9 @@ public final class ListenerRomper implements Listener {
     public void onRomper(BlockBreakEvent event) {
         if (event.isCancelled()) return;
 
-        // ¿Tenía una protección este bloque?
-        ProtectionRecord eliminado = registry.eliminar(event.getBlock().getLocation());
+        // ¿Tenía una protección este bloque? Por coordenadas: sin crear Location
+        Block bloque = event.getBlock();
+        ProtectionRecord eliminado = registry.eliminar(bloque.getWorld(), bloque.getX(), bloque.getY(), bloque.getZ());
         if (eliminado == null) return; // No tenía protección, no pasa nada
 
         // --- Efectos de eliminación ---
@@ -1,8 +1,8 @@
 package com.protectium.listener;
 
-import com.protectium.protection.ProtectionRecord;
 import com.protectium.protection.ProtectionType;
 import com.protectium.registry.ProtectionRegistry;
+import org.bukkit.Location;
 import org.bukkit.entity.Creature;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
@@ -11,8 +11,6 @@ import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 
-import java.util.List;
-
 /**
  * Protección tipo SPAWN: bloquea el spawn de mobs hostiles
  * dentro de cualquier cubo de tipo SPAWN activo.
@@ -70,12 +68,10 @@ public final class ListenerSpawn implements Listener {
         if (!HOSTILES.contains(entidad.getType())) return;
 
         // Buscar protecciones SPAWN que contengan esta ubicación
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(entidad.getLocation());
-
-        for (ProtectionRecord rec : contenedoras) {
-            if (rec.getTipo() != ProtectionType.SPAWN) continue;
+        Location ubicacion = event.getLocation();
+        if (registry.hayContenedora(ubicacion.getWorld(), ubicacion.getBlockX(), ubicacion.getBlockZ(),
+                ProtectionType.SPAWN)) {
             event.setCancelled(true);
-            return;
         }
     }
 }
@@ -2,81 +2,55 @@ package com.protectium.listener;
 
 import com.protectium.core.Mensajes;
 import com.protectium.protection.ProtectionRecord;
-import com.protectium.registry.ProtectionRegistry;
+import com.protectium.zone.OyenteZona;
 import net.md_5.bungee.api.ChatMessageType;
 import net.md_5.bungee.api.chat.TextComponent;
-import org.bukkit.Location;
 import org.bukkit.entity.Player;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
-import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerMoveEvent;
 
-import java.util.*;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Shows ActionBar notifications when players enter or leave protected zones.
+ * Subscribed to the PlayerZoneTracker: no registry lookups of its own.
  * v2.3.1 Feature
  */
-public final class ListenerZoneNotify implements Listener {
+public final class ListenerZoneNotify implements OyenteZona {
 
-    private final ProtectionRegistry registry;
     private final Mensajes mensajes;
 
-    // Track if player is in any zone (simple boolean)
-    private final Map<UUID, Boolean> playerInZone = new ConcurrentHashMap<>();
-
     // Cooldown to avoid spam
     private static final long COOLDOWN_MS = 3000;
     private final Map<UUID, Long> lastNotify = new ConcurrentHashMap<>();
 
-    public ListenerZoneNotify(ProtectionRegistry registry, Mensajes mensajes) {
-        this.registry = registry;
+    public ListenerZoneNotify(Mensajes mensajes) {
         this.mensajes = mensajes;
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onMove(PlayerMoveEvent event) {
-        Location from = event.getFrom();
-        Location to = event.getTo();
-
-        // Only check on block change
-        if (from.getBlockX() == to.getBlockX()
-                && from.getBlockY() == to.getBlockY()
-                && from.getBlockZ() == to.getBlockZ()) {
-            return;
-        }
-
-        Player player = event.getPlayer();
+    @Override
+    public void alCambiarZona(Player player, ProtectionRecord[] antes, ProtectionRecord[] ahora) {
         UUID uuid = player.getUniqueId();
 
-        // Check if currently in any zone
-        List<ProtectionRecord> currentZones = registry.buscarContenedoras(to);
-        boolean nowInZone = !currentZones.isEmpty();
-        Boolean wasInZone = playerInZone.get(uuid);
-
-        if (wasInZone == null) {
-            wasInZone = false;
-        }
-
         // Entering a zone
-        if (nowInZone && !wasInZone) {
+        if (ahora.length > 0 && antes.length == 0) {
             if (canNotify(uuid)) {
-                String type = currentZones.get(0).getTipo().name();
+                String type = ahora[0].getTipo().name();
                 sendActionBar(player, mensajes.zoneEntered(type));
             }
         }
 
         // Leaving a zone
-        if (!nowInZone && wasInZone) {
+        if (ahora.length == 0 && antes.length > 0) {
             if (canNotify(uuid)) {
                 sendActionBar(player, mensajes.zoneLeft());
             }
         }
+    }
 
-        // Update state
-        playerInZone.put(uuid, nowInZone);
+    @Override
+    public void alSalir(Player player) {
+        lastNotify.remove(player.getUniqueId());
     }
 
     private boolean canNotify(UUID uuid) {
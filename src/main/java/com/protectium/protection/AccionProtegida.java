@@ -0,0 +1,88 @@
+package com.protectium.protection;
+
+import java.util.UUID;
+
+/**
+ * Acciones que una protección puede impedir, con la regla de su flag.
+ *
+ * Los flags no significan todos lo mismo (se mantienen por compatibilidad
+ * con los datos guardados):
+ * - block-break, block-place, explosions, fire: true = la protección lo
+ *   impide. Solo aplican las protecciones AREA.
+ * - damage: true = permitido.
+ * - interact-entity, item-drop, item-pickup: false = impedido.
+ * Estos últimos aplican en cualquier tipo de protección.
+ *
+ * Cada record compila sus flags en una máscara con un bit por acción
+ * (ver {@link #compilar(ProtectionRecord)}), así que decidir no busca
+ * strings en ningún mapa.
+ */
+public enum AccionProtegida {
+
+    ROMPER(ProtectionFlag.BLOCK_BREAK, true, ProtectionType.AREA, Exencion.INTERACCION),
+    COLOCAR(ProtectionFlag.BLOCK_PLACE, true, ProtectionType.AREA, Exencion.INTERACCION),
+    EXPLOSION(ProtectionFlag.EXPLOSIONS, true, ProtectionType.AREA, Exencion.NINGUNA),
+    FUEGO(ProtectionFlag.FIRE, true, ProtectionType.AREA, Exencion.NINGUNA),
+    DANAR_ENTIDAD(ProtectionFlag.DAMAGE, false, null, Exencion.INTERACCION),
+    INTERACTUAR_ENTIDAD(ProtectionFlag.INTERACT_ENTITY, false, null, Exencion.INTERACCION),
+    SOLTAR_ITEM(ProtectionFlag.ITEM_DROP, false, null, Exencion.MIEMBRO),
+    RECOGER_ITEM(ProtectionFlag.ITEM_PICKUP, false, null, Exencion.MIEMBRO);
+
+    /** Qué miembros de la protección no quedan sujetos a la acción. */
+    private enum Exencion {
+        NINGUNA, INTERACCION, MIEMBRO
+    }
+
+    private static final AccionProtegida[] TODAS = values();
+
+    private final ProtectionFlag flag;
+    private final boolean impideSi;
+    private final ProtectionType tipo;
+    private final Exencion exencion;
+    private final int bit;
+
+    AccionProtegida(ProtectionFlag flag, boolean impideSi, ProtectionType tipo, Exencion exencion) {
+        this.flag = flag;
+        this.impideSi = impideSi;
+        this.tipo = tipo;
+        this.exencion = exencion;
+        this.bit = 1 << ordinal();
+    }
+
+    public ProtectionFlag getFlag() {
+        return flag;
+    }
+
+    /** Único tipo de protección que la impide, o null si aplican todos. */
+    public ProtectionType getTipo() {
+        return tipo;
+    }
+
+    int getBit() {
+        return bit;
+    }
+
+    /** ¿El jugador está exento en esta protección por ser miembro? */
+    public boolean exento(ProtectionRecord rec, UUID jugador) {
+        switch (exencion) {
+            case INTERACCION:
+                return rec.hasInteractPermission(jugador);
+            case MIEMBRO:
+                return rec.isMember(jugador);
+            default:
+                return false;
+        }
+    }
+
+    /** Máscara de acciones que el record impide a quien no está exento. */
+    static int compilar(ProtectionRecord rec) {
+        int mascara = 0;
+        for (AccionProtegida accion : TODAS) {
+            if (accion.tipo != null && accion.tipo != rec.getTipo())
+                continue;
+            if (rec.getFlag(accion.flag) == accion.impideSi)
+                mascara |= accion.bit;
+        }
+        return mascara;
+    }
+}
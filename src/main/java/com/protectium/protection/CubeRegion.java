@@ -60,6 +60,15 @@ public final class CubeRegion {
                 && z >= minZ && z <= maxZ;
     }
 
+    /**
+     * ¿La columna (x, z) cae dentro del cubo? Sin comparar mundo: lo usan
+     * los índices espaciales, que ya están separados por mundo.
+     */
+    public boolean contieneColumna(int x, int z) {
+        return x >= minX && x <= maxX
+                && z >= minZ && z <= maxZ;
+    }
+
     /** ¿El punto dado está exactamente sobre una cara del cubo? */
     public boolean estaEnCara(Location punto) {
         if (!contiene(punto))
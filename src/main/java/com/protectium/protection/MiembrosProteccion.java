@@ -0,0 +1,167 @@
+package com.protectium.protection;
+
+import com.protectium.protection.ProtectionRecord.MemberRole;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Miembros de una protección. Es inmutable: el record la reemplaza entera
+ * en cada cambio (copy-on-write), así que leer no necesita locks y un
+ * recorrido nunca ve un cambio a medias.
+ *
+ * Casi todas las protecciones tienen 1-3 miembros. Hasta MAX_LINEAL se
+ * guardan en arreglos y buscar a un jugador es comparar dos longs por
+ * miembro; por encima se usa un mapa.
+ */
+final class MiembrosProteccion {
+
+    static final int MAX_LINEAL = 8;
+
+    static final MiembrosProteccion VACIO = new MiembrosProteccion(new UUID[0], new long[0], new MemberRole[0]);
+
+    // Forma lineal: bits[2i], bits[2i+1] son los bits altos y bajos de claves[i]
+    private final UUID[] claves;
+    private final long[] bits;
+    private final MemberRole[] roles;
+
+    // Forma con mapa (más de MAX_LINEAL miembros); null en la lineal
+    private final Map<UUID, MemberRole> porUuid;
+
+    // Vista como mapa para quien la pida, creada al primer uso
+    private Map<UUID, MemberRole> vista;
+
+    private MiembrosProteccion(UUID[] claves, long[] bits, MemberRole[] roles) {
+        this.claves = claves;
+        this.bits = bits;
+        this.roles = roles;
+        this.porUuid = null;
+    }
+
+    private MiembrosProteccion(Map<UUID, MemberRole> porUuid) {
+        this.claves = null;
+        this.bits = null;
+        this.roles = null;
+        this.porUuid = porUuid;
+        this.vista = porUuid;
+    }
+
+    static MiembrosProteccion de(Map<UUID, MemberRole> miembros) {
+        if (miembros.size() > MAX_LINEAL)
+            return new MiembrosProteccion(Map.copyOf(miembros));
+        MiembrosProteccion resultado = VACIO;
+        for (Map.Entry<UUID, MemberRole> e : miembros.entrySet())
+            resultado = resultado.con(e.getKey(), e.getValue());
+        return resultado;
+    }
+
+    /** Rol del jugador, o null si no es miembro. */
+    MemberRole rol(UUID jugador) {
+        if (porUuid != null)
+            return porUuid.get(jugador);
+        int i = indice(jugador.getMostSignificantBits(), jugador.getLeastSignificantBits());
+        return i >= 0 ? roles[i] : null;
+    }
+
+    int cantidad() {
+        return porUuid != null ? porUuid.size() : roles.length;
+    }
+
+    void forEach(BiConsumer<UUID, MemberRole> accion) {
+        if (porUuid != null) {
+            porUuid.forEach(accion);
+            return;
+        }
+        for (int i = 0; i < roles.length; i++)
+            accion.accept(claves[i], roles[i]);
+    }
+
+    /** Mapa inmutable con los miembros; el mismo objeto mientras no cambien. */
+    Map<UUID, MemberRole> comoMapa() {
+        Map<UUID, MemberRole> v = vista;
+        if (v == null) {
+            Map<UUID, MemberRole> m = new HashMap<>(roles.length * 2);
+            forEach(m::put);
+            // Map.copyOf: campos final, se puede publicar sin sincronizar
+            vista = v = Map.copyOf(m);
+        }
+        return v;
+    }
+
+    // ---------------------------------------------------------------
+    // Copias modificadas
+    // ---------------------------------------------------------------
+
+    /** Copia con el miembro agregado o con su rol cambiado. */
+    MiembrosProteccion con(UUID jugador, MemberRole rol) {
+        if (porUuid != null) {
+            Map<UUID, MemberRole> m = new HashMap<>(porUuid);
+            m.put(jugador, rol);
+            return new MiembrosProteccion(Map.copyOf(m));
+        }
+
+        long alto = jugador.getMostSignificantBits();
+        long bajo = jugador.getLeastSignificantBits();
+        int i = indice(alto, bajo);
+        if (i >= 0) {
+            if (roles[i] == rol)
+                return this;
+            MemberRole[] nuevos = roles.clone();
+            nuevos[i] = rol;
+            return new MiembrosProteccion(claves, bits, nuevos);
+        }
+
+        int n = roles.length;
+        if (n == MAX_LINEAL) {
+            Map<UUID, MemberRole> m = new HashMap<>(n * 2 + 2);
+            forEach(m::put);
+            m.put(jugador, rol);
+            return new MiembrosProteccion(Map.copyOf(m));
+        }
+        UUID[] c = Arrays.copyOf(claves, n + 1);
+        long[] b = Arrays.copyOf(bits, (n + 1) * 2);
+        MemberRole[] r = Arrays.copyOf(roles, n + 1);
+        c[n] = jugador;
+        b[n * 2] = alto;
+        b[n * 2 + 1] = bajo;
+        r[n] = rol;
+        return new MiembrosProteccion(c, b, r);
+    }
+
+    /** Copia sin el miembro; la misma instancia si no estaba. */
+    MiembrosProteccion sin(UUID jugador) {
+        if (porUuid != null) {
+            if (!porUuid.containsKey(jugador))
+                return this;
+            Map<UUID, MemberRole> m = new HashMap<>(porUuid);
+            m.remove(jugador);
+            return m.size() > MAX_LINEAL ? new MiembrosProteccion(Map.copyOf(m)) : de(m);
+        }
+
+        int i = indice(jugador.getMostSignificantBits(), jugador.getLeastSignificantBits());
+        if (i < 0)
+            return this;
+        int n = roles.length - 1;
+        UUID[] c = new UUID[n];
+        long[] b = new long[n * 2];
+        MemberRole[] r = new MemberRole[n];
+        System.arraycopy(claves, 0, c, 0, i);
+        System.arraycopy(claves, i + 1, c, i, n - i);
+        System.arraycopy(bits, 0, b, 0, i * 2);
+        System.arraycopy(bits, (i + 1) * 2, b, i * 2, (n - i) * 2);
+        System.arraycopy(roles, 0, r, 0, i);
+        System.arraycopy(roles, i + 1, r, i, n - i);
+        return new MiembrosProteccion(c, b, r);
+    }
+
+    private int indice(long alto, long bajo) {
+        for (int i = 0; i < roles.length; i++) {
+            if (bits[i * 2] == alto && bits[i * 2 + 1] == bajo)
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.protectium.protection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flags configurables de una protección. La clave es la que se guarda en
+ * disco y se muestra en el GUI; el valor por defecto es el que recibe una
+ * protección nueva y el que se asume si un record cargado no lo tiene.
+ *
+ * Como mucho 32: ProtectionRecord guarda valores y "definido" en un long.
+ */
+public enum ProtectionFlag {
+
+    BLOCK_BREAK("block-break", true),
+    BLOCK_PLACE("block-place", true),
+    INTERACT("interact", true),
+    PVP("pvp", false),
+    EXPLOSIONS("explosions", true),
+    FIRE("fire", true),
+    MOB_SPAWNING("mob-spawning", false),
+    DAMAGE("damage", false),
+    INTERACT_ENTITY("interact-entity", true),
+    ITEM_DROP("item-drop", true),
+    ITEM_PICKUP("item-pickup", true);
+
+    private static final Map<String, ProtectionFlag> POR_CLAVE = new HashMap<>();
+
+    static {
+        for (ProtectionFlag flag : values())
+            POR_CLAVE.put(flag.clave, flag);
+    }
+
+    private final String clave;
+    private final boolean porDefecto;
+
+    ProtectionFlag(String clave, boolean porDefecto) {
+        this.clave = clave;
+        this.porDefecto = porDefecto;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public boolean getPorDefecto() {
+        return porDefecto;
+    }
+
+    /** Flag con esa clave, o null si no es un flag conocido. */
+    public static ProtectionFlag deClave(String clave) {
+        return POR_CLAVE.get(clave);
+    }
+}
@@ -4,6 +4,7 @@ import org.bukkit.Location;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * Registro de una protección activa.
@@ -14,18 +15,32 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public final class ProtectionRecord {
 
+    private static final ProtectionFlag[] FLAGS = ProtectionFlag.values();
+
     private final UUID id;
     private final ProtectionType tipo;
     private final Location ubicacionBloque;
     private final CubeRegion cubo;
-    private final UUID colocadoPor;
+    // Dueño: quien la colocó, salvo que se transfiera
+    private volatile UUID colocadoPor;
     private final long marcaTiempo;
 
-    // Sistema de miembros: UUID del jugador → rol
-    private final Map<UUID, MemberRole> miembros = new ConcurrentHashMap<>();
+    // Sistema de miembros: UUID del jugador → rol. Instantánea inmutable que
+    // se reemplaza en cada cambio; leerla no bloquea ni copia.
+    private volatile MiembrosProteccion miembros;
+
+    // Flags configurables, un bit por ProtectionFlag (ordinal): los 32 bits
+    // bajos son los valores y los altos marcan los definidos. Un solo long
+    // para que quien lee nunca vea valor y "definido" de cambios distintos.
+    private volatile long flags;
 
-    // Flags configurables
-    private final Map<String, Boolean> flags = new ConcurrentHashMap<>();
+    // Flags con claves que no son ProtectionFlag (datos de otras versiones).
+    // Se conservan para no perderlos al guardar; casi siempre null.
+    private volatile Map<String, Boolean> flagsDesconocidos;
+
+    // Flags compilados: bit por AccionProtegida que esta protección impide.
+    // Se recalcula en cada setFlag.
+    private volatile int accionesImpedidas;
 
     /**
      * Roles de miembros en una protección.
@@ -73,10 +88,11 @@ public final class ProtectionRecord {
         this.marcaTiempo = System.currentTimeMillis();
 
         // El dueño es automáticamente OWNER
-        this.miembros.put(colocadoPor, MemberRole.OWNER);
+        this.miembros = MiembrosProteccion.VACIO.con(colocadoPor, MemberRole.OWNER);
 
         // Flags por defecto
         initDefaultFlags();
+        this.accionesImpedidas = AccionProtegida.compilar(this);
     }
 
     /**
@@ -91,23 +107,14 @@ public final class ProtectionRecord {
         this.cubo = new CubeRegion(ubicacionBloque, radio);
         this.colocadoPor = colocadoPor;
         this.marcaTiempo = marcaTiempo;
-        this.miembros.putAll(miembros);
-        this.flags.putAll(flags);
+        this.miembros = MiembrosProteccion.de(miembros);
+        flags.forEach(this::ponerFlag);
+        this.accionesImpedidas = AccionProtegida.compilar(this);
     }
 
     private void initDefaultFlags() {
-        flags.put("block-break", true);
-        flags.put("block-place", true);
-        flags.put("interact", true);
-        flags.put("pvp", false);
-        flags.put("explosions", true);
-        flags.put("fire", true);
-        flags.put("mob-spawning", false);
-        // New V3 Flags
-        flags.put("damage", false); // Entities taking damage
-        flags.put("interact-entity", true); // Villagers, item frames, etc.
-        flags.put("item-drop", true);
-        flags.put("item-pickup", true);
+        for (ProtectionFlag flag : FLAGS)
+            ponerFlag(flag, flag.getPorDefecto());
     }
 
     // ---------------------------------------------------------------
@@ -117,32 +124,34 @@ public final class ProtectionRecord {
     /**
      * Añade un miembro con el rol especificado.
      */
-    public void addMember(UUID playerId, MemberRole role) {
-        miembros.put(playerId, role);
+    public synchronized void addMember(UUID playerId, MemberRole role) {
+        miembros = miembros.con(playerId, role);
     }
 
     /**
      * Remueve un miembro de la protección.
      */
-    public boolean removeMember(UUID playerId) {
+    public synchronized boolean removeMember(UUID playerId) {
         // No permitir remover al dueño
         if (playerId.equals(colocadoPor))
             return false;
-        return miembros.remove(playerId) != null;
+        MiembrosProteccion antes = miembros;
+        miembros = antes.sin(playerId);
+        return miembros != antes;
     }
 
     /**
      * Obtiene el rol de un jugador. Retorna null si no es miembro.
      */
     public MemberRole getMemberRole(UUID playerId) {
-        return miembros.get(playerId);
+        return miembros.rol(playerId);
     }
 
     /**
      * ¿Es este jugador miembro (cualquier rol)?
      */
     public boolean isMember(UUID playerId) {
-        return miembros.containsKey(playerId);
+        return miembros.rol(playerId) != null;
     }
 
     /**
@@ -150,7 +159,7 @@ public final class ProtectionRecord {
      * Dueño y Moderadores tienen bypass.
      */
     public boolean hasInteractPermission(UUID playerId) {
-        MemberRole role = miembros.get(playerId);
+        MemberRole role = miembros.rol(playerId);
         if (role == null)
             return false;
         return role == MemberRole.OWNER || role == MemberRole.MODERATOR || role == MemberRole.MEMBER;
@@ -161,12 +170,25 @@ public final class ProtectionRecord {
      * Solo dueño y moderadores.
      */
     public boolean canModify(UUID playerId) {
-        MemberRole role = miembros.get(playerId);
+        MemberRole role = miembros.rol(playerId);
         if (role == null)
             return false;
         return role == MemberRole.OWNER || role == MemberRole.MODERATOR;
     }
 
+    /**
+     * Pasa la protección a otro dueño. El anterior deja de ser miembro; el
+     * nuevo queda como OWNER aunque ya tuviera otro rol.
+     *
+     * @return el dueño anterior
+     */
+    public synchronized UUID transferirA(UUID nuevoDueno) {
+        UUID anterior = colocadoPor;
+        miembros = miembros.sin(anterior).con(nuevoDueno, MemberRole.OWNER);
+        colocadoPor = nuevoDueno;
+        return anterior;
+    }
+
     /**
      * ¿Es el dueño de la protección?
      */
@@ -175,26 +197,104 @@ public final class ProtectionRecord {
     }
 
     /**
-     * Lista todos los miembros.
+     * Lista todos los miembros. El mapa es inmutable y es el mismo objeto
+     * mientras los miembros no cambien.
      */
     public Map<UUID, MemberRole> getMembers() {
-        return new HashMap<>(miembros);
+        return miembros.comoMapa();
+    }
+
+    public int getCantidadMiembros() {
+        return miembros.cantidad();
+    }
+
+    /** Recorre los miembros sin copiar el mapa. */
+    public void forEachMiembro(BiConsumer<UUID, MemberRole> accion) {
+        miembros.forEach(accion);
     }
 
     // ---------------------------------------------------------------
     // Sistema de flags
     // ---------------------------------------------------------------
 
-    public void setFlag(String flag, boolean value) {
-        flags.put(flag, value);
+    // Las claves String son para config, GUI y persistencia; por dentro
+    // los flags conocidos viven en bits.
+
+    public synchronized void setFlag(String flag, boolean value) {
+        ponerFlag(flag, value);
+        accionesImpedidas = AccionProtegida.compilar(this);
+    }
+
+    public synchronized void setFlag(ProtectionFlag flag, boolean value) {
+        ponerFlag(flag, value);
+        accionesImpedidas = AccionProtegida.compilar(this);
     }
 
     public boolean getFlag(String flag, boolean defaultValue) {
-        return flags.getOrDefault(flag, defaultValue);
+        ProtectionFlag conocido = ProtectionFlag.deClave(flag);
+        if (conocido != null)
+            return getFlag(conocido, defaultValue);
+        Map<String, Boolean> otros = flagsDesconocidos;
+        return otros != null ? otros.getOrDefault(flag, defaultValue) : defaultValue;
+    }
+
+    /** Valor del flag, o su valor por defecto si este record no lo tiene. */
+    public boolean getFlag(ProtectionFlag flag) {
+        return getFlag(flag, flag.getPorDefecto());
+    }
+
+    private boolean getFlag(ProtectionFlag flag, boolean defaultValue) {
+        long actual = flags;
+        int bit = flag.ordinal();
+        if ((actual & (1L << (bit + 32))) == 0)
+            return defaultValue;
+        return (actual & (1L << bit)) != 0;
     }
 
+    /** Copia de los flags definidos, por clave. */
     public Map<String, Boolean> getFlags() {
-        return new HashMap<>(flags);
+        Map<String, Boolean> copia = new HashMap<>();
+        forEachFlag(copia::put);
+        return copia;
+    }
+
+    /** Recorre los flags definidos sin copiarlos. */
+    public void forEachFlag(BiConsumer<String, Boolean> accion) {
+        long actual = flags;
+        for (ProtectionFlag flag : FLAGS) {
+            int bit = flag.ordinal();
+            if ((actual & (1L << (bit + 32))) != 0)
+                accion.accept(flag.getClave(), (actual & (1L << bit)) != 0);
+        }
+        Map<String, Boolean> otros = flagsDesconocidos;
+        if (otros != null)
+            otros.forEach(accion);
+    }
+
+    private void ponerFlag(String clave, boolean valor) {
+        ProtectionFlag conocido = ProtectionFlag.deClave(clave);
+        if (conocido != null) {
+            ponerFlag(conocido, valor);
+            return;
+        }
+        Map<String, Boolean> otros = flagsDesconocidos;
+        if (otros == null)
+            flagsDesconocidos = otros = new ConcurrentHashMap<>(4);
+        otros.put(clave, valor);
+    }
+
+    private void ponerFlag(ProtectionFlag flag, boolean valor) {
+        int bit = flag.ordinal();
+        long actual = flags | (1L << (bit + 32));
+        flags = valor ? actual | (1L << bit) : actual & ~(1L << bit);
+    }
+
+    /**
+     * ¿Esta protección impide la acción a quien no está exento? Lee los
+     * flags ya compilados a una máscara por acción.
+     */
+    public boolean impide(AccionProtegida accion) {
+        return (accionesImpedidas & accion.getBit()) != 0;
     }
 
     // ---------------------------------------------------------------
@@ -230,7 +330,8 @@ public final class ProtectionRecord {
     }
 
     // ---------------------------------------------------------------
-    // Clave única para indexado rápido por ubicación
+    // Clave de ubicación en texto (mundo:x:y:z). El registro indexa por
+    // posición empaquetada; esta queda para mensajes y herramientas.
     // ---------------------------------------------------------------
 
     public static String clave(Location loc) {
@@ -247,6 +348,6 @@ public final class ProtectionRecord {
     @Override
     public String toString() {
         return String.format("Protección[%s tipo=%s cubo=%s por=%s miembros=%d]",
-                id, tipo, cubo, colocadoPor, miembros.size());
+                id, tipo, cubo, colocadoPor, miembros.cantidad());
     }
 }
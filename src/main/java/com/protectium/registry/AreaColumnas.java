@@ -0,0 +1,89 @@
+package com.protectium.registry;
+
+import com.protectium.protection.CubeRegion;
+
+/**
+ * Rectángulo de columnas (X/Z de bloque, bordes incluidos) donde el
+ * conjunto de protecciones contenedoras es el mismo que en un punto dado.
+ * Lo llena ProtectionRegistry; quien lo guarde puede saltarse la consulta
+ * mientras el punto no salga del área.
+ *
+ * Mutable y sin sincronizar: es de quien lo creó.
+ */
+public final class AreaColumnas {
+
+    private int minX;
+    private int minZ;
+    private int maxX;
+    private int maxZ;
+
+    /** Crea un área vacía: no contiene ninguna columna. */
+    public AreaColumnas() {
+        vaciar();
+    }
+
+    public boolean contiene(int x, int z) {
+        return x >= minX && x <= maxX && z >= minZ && z <= maxZ;
+    }
+
+    /** ¿El cubo toca alguna columna del área? */
+    public boolean intersecta(CubeRegion cubo) {
+        return cubo.getMinX() <= maxX && cubo.getMaxX() >= minX
+                && cubo.getMinZ() <= maxZ && cubo.getMaxZ() >= minZ;
+    }
+
+    public void vaciar() {
+        minX = minZ = 0;
+        maxX = maxZ = -1;
+    }
+
+    public void copiar(AreaColumnas otra) {
+        minX = otra.minX;
+        minZ = otra.minZ;
+        maxX = otra.maxX;
+        maxZ = otra.maxZ;
+    }
+
+    // ---------------------------------------------------------------
+    // Recorte (lo usa ProtectionRegistry)
+    // ---------------------------------------------------------------
+
+    void todoElMundo() {
+        minX = minZ = Integer.MIN_VALUE;
+        maxX = maxZ = Integer.MAX_VALUE;
+    }
+
+    /** Limita el área a la celda de 2^bits bloques que contiene (x, z). */
+    void recortarCelda(int x, int z, int bits) {
+        int baseX = (x >> bits) << bits;
+        int baseZ = (z >> bits) << bits;
+        int lado = (1 << bits) - 1;
+        minX = Math.max(minX, baseX);
+        minZ = Math.max(minZ, baseZ);
+        maxX = Math.min(maxX, baseX + lado);
+        maxZ = Math.min(maxZ, baseZ + lado);
+    }
+
+    /** El cubo contiene (x, z): el área no puede salir de él. */
+    void recortarDentro(CubeRegion cubo) {
+        minX = Math.max(minX, cubo.getMinX());
+        minZ = Math.max(minZ, cubo.getMinZ());
+        maxX = Math.min(maxX, cubo.getMaxX());
+        maxZ = Math.min(maxZ, cubo.getMaxZ());
+    }
+
+    /**
+     * El cubo no contiene (x, z): el área no puede entrar en él. Se corta
+     * por el eje en que el cubo queda separado del punto.
+     */
+    void recortarFuera(CubeRegion cubo, int x, int z) {
+        if (cubo.getMaxX() < x)
+            minX = Math.max(minX, cubo.getMaxX() + 1);
+        else if (cubo.getMinX() > x)
+            maxX = Math.min(maxX, cubo.getMinX() - 1);
+        else if (cubo.getMaxZ() < z)
+            minZ = Math.max(minZ, cubo.getMaxZ() + 1);
+        else
+            maxZ = Math.min(maxZ, cubo.getMinZ() - 1);
+    }
+}
@@ -0,0 +1,124 @@
+package com.protectium.registry;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de "¿hay una protección de este tipo sobre la columna (x, z)?"
+ * para eventos que se repiten en las mismas posiciones miles de veces por
+ * segundo (relojes y comparadores de redstone). Una respuesta repetida
+ * cuesta una búsqueda en un LongHashMap.
+ *
+ * Se invalida entera cuando se registra o elimina una protección del tipo:
+ * los avisos del registro solo suben una generación (pueden llegar desde
+ * cualquier hilo) y la caché se vacía en la próxima consulta.
+ * Si crece más allá del máximo también se vacía.
+ *
+ * Las consultas son del hilo principal.
+ */
+public final class CacheColumnas implements ObservadorRegistro {
+
+    private final ProtectionRegistry registry;
+    private final ProtectionType tipo;
+    private final int maxEntradas;
+
+    private final AtomicLong generacion = new AtomicLong();
+    private long generacionVista;
+
+    private final Map<UUID, LongHashMap<Boolean>> porMundo = new HashMap<>();
+    private int entradas;
+
+    // Casi siempre se consulta el mismo mundo
+    private World ultimoMundo;
+    private LongHashMap<Boolean> ultimasColumnas;
+
+    private long consultas;
+    private long aciertos;
+
+    public CacheColumnas(ProtectionRegistry registry, ProtectionType tipo, int maxEntradas) {
+        this.registry = registry;
+        this.tipo = tipo;
+        this.maxEntradas = maxEntradas;
+    }
+
+    /** Igual que {@link ProtectionRegistry#hayContenedora}, con el tipo de esta caché. */
+    public boolean hayContenedora(World mundo, int x, int z) {
+        consultas++;
+        long actual = generacion.get();
+        if (actual != generacionVista || entradas >= maxEntradas) {
+            vaciar();
+            generacionVista = actual;
+        }
+
+        LongHashMap<Boolean> columnas = columnasDe(mundo);
+        long clave = LongHashMap.empaquetar(x, z);
+        Boolean decision = columnas.get(clave);
+        if (decision != null) {
+            aciertos++;
+            return decision;
+        }
+
+        boolean hay = registry.hayContenedora(mundo, x, z, tipo);
+        columnas.put(clave, hay);
+        entradas++;
+        return hay;
+    }
+
+    private LongHashMap<Boolean> columnasDe(World mundo) {
+        if (mundo != ultimoMundo) {
+            ultimoMundo = mundo;
+            ultimasColumnas = porMundo.computeIfAbsent(mundo.getUID(), k -> new LongHashMap<>());
+        }
+        return ultimasColumnas;
+    }
+
+    private void vaciar() {
+        porMundo.clear();
+        ultimoMundo = null;
+        ultimasColumnas = null;
+        entradas = 0;
+    }
+
+    // ---------------------------------------------------------------
+    // Observador del registro
+    // ---------------------------------------------------------------
+
+    @Override
+    public void alRegistrar(ProtectionRecord rec) {
+        if (rec.getTipo() == tipo)
+            generacion.incrementAndGet();
+    }
+
+    @Override
+    public void alEliminar(ProtectionRecord rec) {
+        if (rec.getTipo() == tipo)
+            generacion.incrementAndGet();
+    }
+
+    // ---------------------------------------------------------------
+    // Estadísticas
+    // ---------------------------------------------------------------
+
+    public long getConsultas() {
+        return consultas;
+    }
+
+    public long getAciertos() {
+        return aciertos;
+    }
+
+    /** Porcentaje de consultas respondidas desde la caché, 0 si no hubo ninguna. */
+    public double getTasaAciertos() {
+        return consultas == 0 ? 0 : aciertos * 100.0 / consultas;
+    }
+
+    public int getEntradas() {
+        return entradas;
+    }
+}
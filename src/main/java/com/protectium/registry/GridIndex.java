@@ -0,0 +1,136 @@
+package com.protectium.registry;
+
+import com.protectium.protection.CubeRegion;
+import com.protectium.protection.ProtectionRecord;
+
+import java.util.Arrays;
+
+/**
+ * Índice espacial en grilla: (celdaX, celdaZ) empaquetado en un long →
+ * protecciones cuyo cubo toca esa celda. El tamaño de celda es 2^bits
+ * bloques: con 4 bits cada celda es un chunk; con 9 bits, una región de
+ * 512x512 bloques (una protección enorme toca pocas celdas).
+ *
+ * Cada celda guarda un arreglo inmutable que se reemplaza al mutar
+ * (copy-on-write), así que quien lo esté recorriendo nunca ve un arreglo a
+ * medio modificar aunque la protección se elimine durante el recorrido.
+ *
+ * Las mutaciones las serializa ProtectionRegistry; las lecturas son del
+ * hilo principal.
+ */
+public final class GridIndex implements SpatialIndex {
+
+    private static final ProtectionRecord[] VACIO = new ProtectionRecord[0];
+
+    /** Bits de una celda de tamaño chunk (16 bloques). */
+    public static final int BITS_CHUNK = 4;
+    /** Bits de una celda de tamaño región (512 bloques). */
+    public static final int BITS_REGION = 9;
+
+    private final LongHashMap<ProtectionRecord[]> celdas = new LongHashMap<>();
+    private final int bits;
+
+    public GridIndex(int bits) {
+        this.bits = bits;
+    }
+
+    // ---------------------------------------------------------------
+    // Mutaciones
+    // ---------------------------------------------------------------
+
+    @Override
+    public void agregar(ProtectionRecord record) {
+        CubeRegion cubo = record.getCubo();
+        int minCeldaX = cubo.getMinX() >> bits;
+        int maxCeldaX = cubo.getMaxX() >> bits;
+        int minCeldaZ = cubo.getMinZ() >> bits;
+        int maxCeldaZ = cubo.getMaxZ() >> bits;
+
+        for (int cx = minCeldaX; cx <= maxCeldaX; cx++) {
+            for (int cz = minCeldaZ; cz <= maxCeldaZ; cz++) {
+                long clave = LongHashMap.empaquetar(cx, cz);
+                ProtectionRecord[] actuales = celdas.get(clave);
+                if (actuales == null) {
+                    celdas.put(clave, new ProtectionRecord[] { record });
+                    continue;
+                }
+                ProtectionRecord[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+                nuevos[actuales.length] = record;
+                celdas.put(clave, nuevos);
+            }
+        }
+    }
+
+    @Override
+    public void quitar(ProtectionRecord record) {
+        CubeRegion cubo = record.getCubo();
+        int minCeldaX = cubo.getMinX() >> bits;
+        int maxCeldaX = cubo.getMaxX() >> bits;
+        int minCeldaZ = cubo.getMinZ() >> bits;
+        int maxCeldaZ = cubo.getMaxZ() >> bits;
+
+        for (int cx = minCeldaX; cx <= maxCeldaX; cx++) {
+            for (int cz = minCeldaZ; cz <= maxCeldaZ; cz++) {
+                long clave = LongHashMap.empaquetar(cx, cz);
+                ProtectionRecord[] actuales = celdas.get(clave);
+                if (actuales == null)
+                    continue;
+                ProtectionRecord[] nuevos = sin(actuales, record);
+                if (nuevos == actuales)
+                    continue;
+                if (nuevos.length == 0) {
+                    celdas.remove(clave);
+                } else {
+                    celdas.put(clave, nuevos);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void limpiar() {
+        celdas.clear();
+    }
+
+    // ---------------------------------------------------------------
+    // Consultas
+    // ---------------------------------------------------------------
+
+    @Override
+    public ProtectionRecord[] candidatas(int x, int z) {
+        return celdas.get(LongHashMap.empaquetar(x >> bits, z >> bits));
+    }
+
+    @Override
+    public int bitsCelda() {
+        return bits;
+    }
+
+    @Override
+    public int celdasOcupadas() {
+        return celdas.size();
+    }
+
+    @Override
+    public boolean estaVacio() {
+        return celdas.isEmpty();
+    }
+
+    // ---------------------------------------------------------------
+    // Utilidades privadas
+    // ---------------------------------------------------------------
+
+    private static ProtectionRecord[] sin(ProtectionRecord[] arreglo, ProtectionRecord record) {
+        for (int i = 0; i < arreglo.length; i++) {
+            if (arreglo[i] != record)
+                continue;
+            if (arreglo.length == 1)
+                return VACIO;
+            ProtectionRecord[] nuevo = new ProtectionRecord[arreglo.length - 1];
+            System.arraycopy(arreglo, 0, nuevo, 0, i);
+            System.arraycopy(arreglo, i + 1, nuevo, i, arreglo.length - i - 1);
+            return nuevo;
+        }
+        return arreglo;
+    }
+}
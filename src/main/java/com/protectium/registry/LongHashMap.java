@@ -0,0 +1,228 @@
+package com.protectium.registry;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Mapa hash de claves primitivas long con direccionamiento abierto
+ * (sondeo lineal). Pensado para índices calientes del registro donde
+ * la clave se puede empaquetar en un long (chunk, posición de bloque).
+ *
+ * Ni get() ni containsKey() reservan memoria: no hay boxing de la clave
+ * ni objetos de entrada. El borrado usa desplazamiento hacia atrás, así
+ * que no quedan lápidas que degraden las búsquedas con el tiempo.
+ *
+ * No es thread-safe. El dueño del mapa decide la política de acceso.
+ */
+public final class LongHashMap<V> {
+
+    private static final int CAPACIDAD_MINIMA = 16;
+    private static final float CARGA_MAXIMA = 0.5f;
+
+    private long[] claves;
+    private Object[] valores;
+    private int mascara;
+    private int tamano;
+    private int umbral;
+
+    public LongHashMap() {
+        this(CAPACIDAD_MINIMA);
+    }
+
+    public LongHashMap(int capacidadEsperada) {
+        int capacidad = capacidadPara(capacidadEsperada);
+        asignar(capacidad);
+    }
+
+    // ---------------------------------------------------------------
+    // Consultas
+    // ---------------------------------------------------------------
+
+    /** Valor asociado a la clave, o null si no existe. No reserva memoria. */
+    @SuppressWarnings("unchecked")
+    public V get(long clave) {
+        long[] ks = claves;
+        Object[] vs = valores;
+        int m = mascara;
+        int i = mezclar(clave) & m;
+        Object v;
+        while ((v = vs[i]) != null) {
+            if (ks[i] == clave)
+                return (V) v;
+            i = (i + 1) & m;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long clave) {
+        return get(clave) != null;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    // ---------------------------------------------------------------
+    // Mutaciones
+    // ---------------------------------------------------------------
+
+    /**
+     * Asocia el valor a la clave. Los valores null no están permitidos
+     * (null marca una celda libre). Retorna el valor anterior o null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long clave, V valor) {
+        if (valor == null)
+            throw new IllegalArgumentException("LongHashMap no admite valores null");
+
+        int m = mascara;
+        int i = mezclar(clave) & m;
+        Object v;
+        while ((v = valores[i]) != null) {
+            if (claves[i] == clave) {
+                valores[i] = valor;
+                return (V) v;
+            }
+            i = (i + 1) & m;
+        }
+
+        claves[i] = clave;
+        valores[i] = valor;
+        if (++tamano >= umbral)
+            redimensionar(valores.length << 1);
+        return null;
+    }
+
+    /** Elimina la clave. Retorna el valor eliminado o null. */
+    @SuppressWarnings("unchecked")
+    public V remove(long clave) {
+        int m = mascara;
+        int i = mezclar(clave) & m;
+        Object v;
+        while ((v = valores[i]) != null) {
+            if (claves[i] == clave) {
+                desplazarHaciaAtras(i);
+                tamano--;
+                return (V) v;
+            }
+            i = (i + 1) & m;
+        }
+        return null;
+    }
+
+    public void clear() {
+        Arrays.fill(valores, null);
+        tamano = 0;
+    }
+
+    /** Recorre todos los valores. El orden no está definido. */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> accion) {
+        Object[] vs = valores;
+        for (Object v : vs) {
+            if (v != null)
+                accion.accept((V) v);
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Empaquetado de claves
+    // ---------------------------------------------------------------
+
+    /** Empaqueta dos enteros (p.ej. chunkX/chunkZ) en un long. */
+    public static long empaquetar(int a, int b) {
+        return ((long) a << 32) | (b & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Empaqueta una posición de bloque: 26 bits para x y z, 12 para y (el
+     * mismo rango que usa el servidor).
+     */
+    public static long empaquetarBloque(int x, int y, int z) {
+        return ((x & 0x3FFFFFFL) << 38) | ((z & 0x3FFFFFFL) << 12) | (y & 0xFFFL);
+    }
+
+    public static int altoDe(long clave) {
+        return (int) (clave >> 32);
+    }
+
+    public static int bajoDe(long clave) {
+        return (int) clave;
+    }
+
+    // ---------------------------------------------------------------
+    // Internos
+    // ---------------------------------------------------------------
+
+    /**
+     * Tras liberar la celda i, reubica las entradas siguientes del mismo
+     * grupo para que ninguna búsqueda se corte antes de tiempo.
+     */
+    private void desplazarHaciaAtras(int libre) {
+        int m = mascara;
+        int i = libre;
+        while (true) {
+            i = (i + 1) & m;
+            Object v = valores[i];
+            if (v == null)
+                break;
+            int ideal = mezclar(claves[i]) & m;
+            // ¿La entrada en i puede moverse a la celda libre sin quedar
+            // antes de su posición ideal (considerando la vuelta circular)?
+            if (((i - ideal) & m) >= ((i - libre) & m)) {
+                claves[libre] = claves[i];
+                valores[libre] = v;
+                libre = i;
+            }
+        }
+        valores[libre] = null;
+    }
+
+    private void redimensionar(int nuevaCapacidad) {
+        long[] viejasClaves = claves;
+        Object[] viejosValores = valores;
+        asignar(nuevaCapacidad);
+
+        int m = mascara;
+        for (int j = 0; j < viejosValores.length; j++) {
+            Object v = viejosValores[j];
+            if (v == null)
+                continue;
+            int i = mezclar(viejasClaves[j]) & m;
+            while (valores[i] != null)
+                i = (i + 1) & m;
+            claves[i] = viejasClaves[j];
+            valores[i] = v;
+        }
+    }
+
+    private void asignar(int capacidad) {
+        claves = new long[capacidad];
+        valores = new Object[capacidad];
+        mascara = capacidad - 1;
+        umbral = (int) (capacidad * CARGA_MAXIMA);
+    }
+
+    private static int capacidadPara(int esperada) {
+        int necesaria = (int) Math.ceil(Math.max(esperada, 1) / CARGA_MAXIMA) + 1;
+        int capacidad = CAPACIDAD_MINIMA;
+        while (capacidad < necesaria)
+            capacidad <<= 1;
+        return capacidad;
+    }
+
+    /** Mezcla de bits (finalizador de MurmurHash3) para repartir claves secuenciales. */
+    private static int mezclar(long clave) {
+        long h = clave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,47 @@
+package com.protectium.registry;
+
+import com.protectium.protection.ProtectionRecord;
+
+import java.util.UUID;
+
+/**
+ * Recibe cada mutación del registro en el momento en que ocurre, dentro
+ * del mismo lock que la aplica: el orden de llamadas es el orden real de
+ * los cambios. Las implementaciones deben ser rápidas y no tocar el
+ * registro de vuelta.
+ */
+public interface ObservadorRegistro {
+
+    default void alRegistrar(ProtectionRecord rec) {
+    }
+
+    default void alEliminar(ProtectionRecord rec) {
+    }
+
+    /** @param rol nuevo rol, o null si el jugador dejó de ser miembro */
+    default void alCambiarMiembro(ProtectionRecord rec, UUID jugador, ProtectionRecord.MemberRole rol) {
+    }
+
+    default void alCambiarFlag(ProtectionRecord rec, String flag, boolean valor) {
+    }
+
+    /** La protección pasó a otro dueño (ya es rec.getColocadoPor()). */
+    default void alCambiarDueno(ProtectionRecord rec, UUID anterior) {
+    }
+
+    /**
+     * La protección vuelve al registro porque se cargó su mundo. Sus datos
+     * no cambiaron; por defecto se trata como un registro.
+     */
+    default void alActivar(ProtectionRecord rec) {
+        alRegistrar(rec);
+    }
+
+    /**
+     * La protección sale del registro porque su mundo se descargó. Sigue
+     * existiendo en disco; por defecto se trata como una eliminación.
+     */
+    default void alDesactivar(ProtectionRecord rec) {
+        alEliminar(rec);
+    }
+}
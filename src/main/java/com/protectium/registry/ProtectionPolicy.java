@@ -0,0 +1,97 @@
+package com.protectium.registry;
+
+import com.protectium.protection.AccionProtegida;
+import com.protectium.protection.CubeRegion;
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Punto único para decidir si una acción está permitida en una posición.
+ * Los listeners preguntan aquí en vez de leer flags por su cuenta.
+ *
+ * Reglas, en orden:
+ * 1. Jugadores con protectium.bypass: siempre permitido.
+ * 2. Cada protección que contiene la columna decide por sí sola con sus
+ *    flags compilados (ver AccionProtegida) y sus miembros: ser miembro de
+ *    una no exime en otra.
+ * 3. Con protecciones superpuestas, la más restrictiva gana: basta una que
+ *    impida la acción.
+ * Romper el bloque de la propia protección no se decide aquí (ver
+ * ListenerRomper).
+ */
+public final class ProtectionPolicy {
+
+    public static final String PERMISO_BYPASS = "protectium.bypass";
+
+    private static final ProtectionType[] TIPOS = ProtectionType.values();
+
+    private final ProtectionRegistry registry;
+
+    public ProtectionPolicy(ProtectionRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** ¿Puede el jugador hacer la acción en la ubicación? */
+    public boolean isAllowed(Player jugador, AccionProtegida accion, Location ubicacion) {
+        if (jugador.hasPermission(PERMISO_BYPASS))
+            return true;
+        return impedidaPor(jugador.getUniqueId(), accion, ubicacion.getWorld(),
+                ubicacion.getBlockX(), ubicacion.getBlockY(), ubicacion.getBlockZ()) == null;
+    }
+
+    /** Para acciones sin jugador (explosiones, fuego). */
+    public boolean isAllowed(AccionProtegida accion, World mundo, int x, int y, int z) {
+        return impedidaPor(null, accion, mundo, x, y, z) == null;
+    }
+
+    /**
+     * Primera protección que impide la acción al jugador en el bloque, o
+     * null si está permitida. No mira el permiso de bypass: para quien
+     * necesita el record (efectos de rebote) y ya lo comprobó.
+     *
+     * Fuera de chunks con protecciones (casi todo el mapa) decide con el
+     * resumen por chunk, sin reservar memoria: el filtro se crea solo si
+     * hay algo que filtrar.
+     *
+     * @param jugador null para acciones sin jugador: nadie está exento
+     */
+    public ProtectionRecord impedidaPor(UUID jugador, AccionProtegida accion, World mundo, int x, int y, int z) {
+        ProtectionType tipo = accion.getTipo();
+        if (!registry.hayEnChunk(mundo, x, z, tipo))
+            return null;
+
+        Predicate<ProtectionRecord> filtro = r -> impide(r, accion, jugador, x, y, z);
+        if (tipo != null)
+            return registry.primeraContenedora(mundo, x, z, tipo, filtro);
+
+        for (ProtectionType t : TIPOS) {
+            if (!registry.hayEnChunk(mundo, x, z, t))
+                continue;
+            ProtectionRecord rec = registry.primeraContenedora(mundo, x, z, t, filtro);
+            if (rec != null)
+                return rec;
+        }
+        return null;
+    }
+
+    /** ¿Esta protección, que contiene el bloque, impide la acción al jugador? */
+    public static boolean impide(ProtectionRecord rec, AccionProtegida accion, UUID jugador, int x, int y, int z) {
+        // Primero la máscara compilada: casi siempre decide sin mirar miembros
+        if (!rec.impide(accion))
+            return false;
+        if (jugador != null && accion.exento(rec, jugador))
+            return false;
+        return accion != AccionProtegida.ROMPER || !esBloqueDe(rec, x, y, z);
+    }
+
+    private static boolean esBloqueDe(ProtectionRecord rec, int x, int y, int z) {
+        CubeRegion cubo = rec.getCubo();
+        return cubo.getCenterX() == x && cubo.getCenterY() == y && cubo.getCenterZ() == z;
+    }
+}
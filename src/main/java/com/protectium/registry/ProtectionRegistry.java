@@ -1,33 +1,92 @@
 package com.protectium.registry;
 
+import com.protectium.protection.CubeRegion;
 import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
 import org.bukkit.Location;
+import org.bukkit.World;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Registro central de todas las protecciones activas en el servidor.
  * Es el único lugar donde se guardan protecciones vivas.
  *
  * Índices optimizados:
- * - Por clave de ubicación (mundo:x:y:z) → búsqueda O(1) al colocar/romper
- * - Por chunk (mundo:chunkX:chunkZ) → búsqueda O(1) para eventos en área
+ * - Por ubicación: UUID del mundo → posición de bloque empaquetada en un
+ *   long (LongHashMap) → búsqueda O(1) sin reservar memoria al colocar/romper
+ * - Por id → todas las protecciones, para recorridos desde otros hilos
+ * - Espacial: UUID del mundo → tipo → TypeIndex (grilla por chunk para
+ *   protecciones pequeñas, por región para las de radio grande) → búsqueda
+ *   O(1) sin reservar memoria para eventos en área.
+ *   Al estar particionado por tipo, una consulta de un tipo concreto descarta
+ *   el chunk entero si no hay protecciones de ese tipo en él.
+ * - Resumen por chunk (ResumenChunks): chunks sin protecciones o cubiertos
+ *   enteros por una sola protección de un tipo se resuelven sin recorrer
+ *   candidatas. Es lo común: la mayoría del mapa no tiene protecciones.
  * - Por mundo → filtrado rápido al iterar por mundo
+ * - Por dueño → límites y "mis protecciones" sin recorrer todo el registro
+ * - Por miembro → dónde tiene acceso un jugador y cambios en bloque
  *
- * Thread-safe: usa ConcurrentHashMap. Las lecturas son sin bloqueo.
+ * Thread-safe: las mutaciones están sincronizadas y los mapas principales son
+ * ConcurrentHashMap. Las consultas espaciales y por ubicación son del hilo
+ * principal.
+ *
+ * Miembros y flags se cambian a través del registro (no directo sobre el
+ * record) para que los observadores, como el journal de persistencia, se
+ * enteren de cada cambio.
  */
 public final class ProtectionRegistry {
 
-    // Índice principal: clave de ubicación → record
-    private final ConcurrentHashMap<String, ProtectionRecord> porUbicacion = new ConcurrentHashMap<>();
+    // Índice principal: id de la protección → record
+    private final ConcurrentHashMap<UUID, ProtectionRecord> porId = new ConcurrentHashMap<>();
+
+    // Índice por ubicación: UUID del mundo → bloque empaquetado → record
+    private final ConcurrentHashMap<UUID, LongHashMap<ProtectionRecord>> porUbicacion = new ConcurrentHashMap<>();
+
+    /** Radio a partir del cual una protección se indexa por región y no por chunk. */
+    public static final int RADIO_GRANDES_POR_DEFECTO = 64;
+
+    // Índice espacial: UUID del mundo → tipo → backends (chunk / región) → records
+    private final ConcurrentHashMap<UUID, EnumMap<ProtectionType, TypeIndex>> porChunk = new ConcurrentHashMap<>();
+
+    // Resumen por chunk: UUID del mundo → chunk → tipos presentes / única que lo cubre
+    private final ConcurrentHashMap<UUID, ResumenChunks> resumenes = new ConcurrentHashMap<>();
+
+    private static final ProtectionType[] TIPOS = ProtectionType.values();
+
+    // Índice por mundo: nombre de mundo → set de ids
+    private final ConcurrentHashMap<String, Set<UUID>> porMundo = new ConcurrentHashMap<>();
+
+    // Índice por dueño: UUID de quien la colocó → set de ids
+    private final ConcurrentHashMap<UUID, Set<UUID>> porDueno = new ConcurrentHashMap<>();
+
+    // Índice por miembro: UUID del jugador → ids donde tiene un rol (dueño incluido)
+    private final ConcurrentHashMap<UUID, Set<UUID>> porMiembro = new ConcurrentHashMap<>();
+
+    private final int radioGrandes;
+
+    private final List<ObservadorRegistro> observadores = new CopyOnWriteArrayList<>();
+
+    // Sube con cada mutación: el guardado compara versiones para saber si
+    // hay algo nuevo que escribir. Solo se escribe dentro de métodos synchronized.
+    private volatile long version;
 
-    // Índice por chunk: "mundo:chunkX:chunkZ" → set de claves de ubicación
-    private final ConcurrentHashMap<String, Set<String>> porChunk = new ConcurrentHashMap<>();
+    public ProtectionRegistry() {
+        this(RADIO_GRANDES_POR_DEFECTO);
+    }
 
-    // Índice por mundo: nombre de mundo → set de claves de ubicación
-    private final ConcurrentHashMap<String, Set<String>> porMundo = new ConcurrentHashMap<>();
+    /**
+     * @param radioGrandes protecciones con radio mayor a este valor se
+     *                     indexan por región de 512 bloques en vez de por chunk
+     */
+    public ProtectionRegistry(int radioGrandes) {
+        this.radioGrandes = radioGrandes;
+    }
 
     // ---------------------------------------------------------------
     // Registro / eliminación
@@ -37,18 +96,43 @@ public final class ProtectionRegistry {
      * Registra una protección activa. Si ya existe en esa ubicación, la reemplaza.
      * Indexa automáticamente en todos los chunks que cubre la protección.
      */
-    public void registrar(ProtectionRecord record) {
-        String clave = record.clave();
-        String mundo = record.getUbicacionBloque().getWorld().getName();
+    public synchronized void registrar(ProtectionRecord record) {
+        ProtectionRecord anterior = insertar(record);
+        for (ObservadorRegistro o : observadores) {
+            if (anterior != null)
+                o.alEliminar(anterior);
+            o.alRegistrar(record);
+        }
+    }
 
-        // Índice principal
-        porUbicacion.put(clave, record);
+    private ProtectionRecord insertar(ProtectionRecord record) {
+        World mundo = record.getUbicacionBloque().getWorld();
+        UUID id = record.getId();
+
+        // Índice por ubicación
+        ProtectionRecord anterior = porUbicacion.computeIfAbsent(mundo.getUID(), k -> new LongHashMap<>())
+                .put(claveDe(record), record);
+        if (anterior != null) {
+            porId.remove(anterior.getId());
+            quitarId(porMundo, mundo.getName(), anterior.getId());
+            desindexar(mundo.getUID(), anterior);
+            desindexarJugadores(anterior);
+        }
 
-        // Índice por mundo
-        porMundo.computeIfAbsent(mundo, k -> ConcurrentHashMap.newKeySet()).add(clave);
+        // Índice principal, por mundo y por jugador
+        porId.put(id, record);
+        agregarId(porMundo, mundo.getName(), id);
+        agregarId(porDueno, record.getColocadoPor(), id);
+        record.forEachMiembro((jugador, rol) -> agregarId(porMiembro, jugador, id));
 
         // Índice por chunks (todos los chunks que cubre la protección)
-        indexarEnChunks(record, clave);
+        TypeIndex indice = porChunk.computeIfAbsent(mundo.getUID(), k -> new EnumMap<>(ProtectionType.class))
+                .computeIfAbsent(record.getTipo(), k -> new TypeIndex(radioGrandes));
+        indice.agregar(record);
+        resumenes.computeIfAbsent(mundo.getUID(), k -> new ResumenChunks()).actualizar(record, indice);
+
+        version++;
+        return anterior;
     }
 
     /**
@@ -56,77 +140,214 @@ public final class ProtectionRegistry {
      * null.
      */
     public ProtectionRecord eliminar(Location ubicacion) {
-        String clave = ProtectionRecord.clave(ubicacion);
-        ProtectionRecord eliminado = porUbicacion.remove(clave);
+        return eliminar(ubicacion.getWorld(), ubicacion.getBlockX(), ubicacion.getBlockY(), ubicacion.getBlockZ());
+    }
+
+    /**
+     * Elimina la protección en el bloque dado. Si no hay ninguna no reserva
+     * memoria ni toma el lock: se llama en cada bloque roto del servidor.
+     */
+    public ProtectionRecord eliminar(World mundo, int x, int y, int z) {
+        if (obtenerEn(mundo, x, y, z) == null)
+            return null;
+        synchronized (this) {
+            return quitarEn(mundo, x, y, z);
+        }
+    }
+
+    private ProtectionRecord quitarEn(World mundo, int x, int y, int z) {
+        LongHashMap<ProtectionRecord> bloques = porUbicacion.get(mundo.getUID());
+        ProtectionRecord eliminado = bloques != null ? bloques.remove(LongHashMap.empaquetarBloque(x, y, z)) : null;
 
         if (eliminado != null) {
-            String mundo = ubicacion.getWorld().getName();
-
-            // Remover de índice por mundo
-            Set<String> clavesMundo = porMundo.get(mundo);
-            if (clavesMundo != null) {
-                clavesMundo.remove(clave);
-                if (clavesMundo.isEmpty()) {
-                    porMundo.remove(mundo);
-                }
-            }
+            if (bloques.isEmpty())
+                porUbicacion.remove(mundo.getUID());
+            porId.remove(eliminado.getId());
+
+            // Remover de índices por mundo y por jugador
+            quitarId(porMundo, mundo.getName(), eliminado.getId());
+            desindexarJugadores(eliminado);
 
             // Remover de índice por chunks
-            desindexarDeChunks(eliminado, clave);
+            desindexar(mundo.getUID(), eliminado);
+
+            version++;
+            for (ObservadorRegistro o : observadores)
+                o.alEliminar(eliminado);
         }
 
         return eliminado;
     }
 
+    /** Quita el record del índice espacial de su tipo, liberando índices vacíos. */
+    private void desindexar(UUID mundoId, ProtectionRecord record) {
+        EnumMap<ProtectionType, TypeIndex> porTipo = porChunk.get(mundoId);
+        if (porTipo == null)
+            return;
+        TypeIndex indice = porTipo.get(record.getTipo());
+        if (indice == null)
+            return;
+        indice.quitar(record);
+        if (indice.estaVacio()) {
+            porTipo.remove(record.getTipo());
+            if (porTipo.isEmpty()) {
+                porChunk.remove(mundoId);
+            }
+        }
+
+        ResumenChunks resumen = resumenes.get(mundoId);
+        if (resumen != null) {
+            resumen.actualizar(record, indice.estaVacio() ? null : indice);
+            if (resumen.estaVacio())
+                resumenes.remove(mundoId);
+        }
+    }
+
     // ---------------------------------------------------------------
-    // Indexación por chunks
+    // Mundos descargados
     // ---------------------------------------------------------------
 
     /**
-     * Indexa la protección en todos los chunks que su cubo cubre.
+     * Registra una protección que vuelve de un mundo recién cargado.
+     * Igual que registrar(), pero los observadores la reciben como
+     * activación: los datos no cambiaron, solo pasan a estar indexados.
      */
-    private void indexarEnChunks(ProtectionRecord record, String clave) {
-        String mundo = record.getUbicacionBloque().getWorld().getName();
-        var cubo = record.getCubo();
+    public synchronized void activar(ProtectionRecord record) {
+        ProtectionRecord anterior = insertar(record);
+        for (ObservadorRegistro o : observadores) {
+            if (anterior != null)
+                o.alDesactivar(anterior);
+            o.alActivar(record);
+        }
+    }
 
-        // Calcular rango de chunks cubiertos
-        int minChunkX = cubo.getMinX() >> 4;
-        int maxChunkX = cubo.getMaxX() >> 4;
-        int minChunkZ = cubo.getMinZ() >> 4;
-        int maxChunkZ = cubo.getMaxZ() >> 4;
+    /**
+     * Quita del registro todas las protecciones del mundo (que se está
+     * descargando) y las retorna. Los índices del mundo se liberan enteros,
+     * sin desindexar protección por protección.
+     */
+    public synchronized List<ProtectionRecord> desactivarMundo(World mundo) {
+        Set<UUID> ids = porMundo.remove(mundo.getName());
+        porUbicacion.remove(mundo.getUID());
+        porChunk.remove(mundo.getUID());
+        resumenes.remove(mundo.getUID());
+        if (ids == null)
+            return Collections.emptyList();
 
-        for (int cx = minChunkX; cx <= maxChunkX; cx++) {
-            for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
-                String chunkKey = mundo + ":" + cx + ":" + cz;
-                porChunk.computeIfAbsent(chunkKey, k -> ConcurrentHashMap.newKeySet()).add(clave);
+        List<ProtectionRecord> quitadas = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            ProtectionRecord rec = porId.remove(id);
+            if (rec != null) {
+                quitadas.add(rec);
+                desindexarJugadores(rec);
             }
         }
+        version++;
+        for (ProtectionRecord rec : quitadas) {
+            for (ObservadorRegistro o : observadores)
+                o.alDesactivar(rec);
+        }
+        return quitadas;
+    }
+
+    // ---------------------------------------------------------------
+    // Miembros y flags
+    // ---------------------------------------------------------------
+
+    /** Añade (o cambia el rol de) un miembro y notifica a los observadores. */
+    public synchronized void agregarMiembro(ProtectionRecord rec, UUID jugador, ProtectionRecord.MemberRole rol) {
+        rec.addMember(jugador, rol);
+        if (estaRegistrado(rec))
+            agregarId(porMiembro, jugador, rec.getId());
+        version++;
+        for (ObservadorRegistro o : observadores)
+            o.alCambiarMiembro(rec, jugador, rol);
+    }
+
+    /** Quita un miembro. No quita al dueño. Retorna false si no hubo cambio. */
+    public synchronized boolean quitarMiembro(ProtectionRecord rec, UUID jugador) {
+        if (!rec.removeMember(jugador))
+            return false;
+        if (estaRegistrado(rec))
+            quitarId(porMiembro, jugador, rec.getId());
+        version++;
+        for (ObservadorRegistro o : observadores)
+            o.alCambiarMiembro(rec, jugador, null);
+        return true;
     }
 
     /**
-     * Remueve la protección de todos los chunks donde estaba indexada.
+     * Quita al jugador de todas las protecciones donde es miembro, salvo
+     * las suyas. Recorre solo esas protecciones (índice por miembro).
+     * Las de mundos no cargados no están en el registro: ver
+     * PersistenceManager.quitarMiembroInactivas().
+     *
+     * @return cuántas protecciones cambiaron
      */
-    private void desindexarDeChunks(ProtectionRecord record, String clave) {
-        String mundo = record.getUbicacionBloque().getWorld().getName();
-        var cubo = record.getCubo();
+    public synchronized int quitarMiembroDeTodas(UUID jugador) {
+        int cambiadas = 0;
+        for (ProtectionRecord rec : resolver(porMiembro.get(jugador))) {
+            if (quitarMiembro(rec, jugador))
+                cambiadas++;
+        }
+        return cambiadas;
+    }
 
-        int minChunkX = cubo.getMinX() >> 4;
-        int maxChunkX = cubo.getMaxX() >> 4;
-        int minChunkZ = cubo.getMinZ() >> 4;
-        int maxChunkZ = cubo.getMaxZ() >> 4;
+    /**
+     * Pasa la protección a otro dueño. El anterior deja de ser miembro.
+     * Retorna false si ya era suya.
+     */
+    public synchronized boolean transferir(ProtectionRecord rec, UUID nuevoDueno) {
+        if (rec.isOwner(nuevoDueno))
+            return false;
+        boolean registrado = estaRegistrado(rec);
+        UUID id = rec.getId();
+        if (registrado)
+            desindexarJugadores(rec);
+        UUID anterior = rec.transferirA(nuevoDueno);
+        if (registrado) {
+            agregarId(porDueno, nuevoDueno, id);
+            rec.forEachMiembro((jugador, rol) -> agregarId(porMiembro, jugador, id));
+        }
+        version++;
+        for (ObservadorRegistro o : observadores)
+            o.alCambiarDueno(rec, anterior);
+        return true;
+    }
 
-        for (int cx = minChunkX; cx <= maxChunkX; cx++) {
-            for (int cz = minChunkZ; cz <= maxChunkZ; cz++) {
-                String chunkKey = mundo + ":" + cx + ":" + cz;
-                Set<String> claves = porChunk.get(chunkKey);
-                if (claves != null) {
-                    claves.remove(clave);
-                    if (claves.isEmpty()) {
-                        porChunk.remove(chunkKey);
-                    }
-                }
-            }
+    /**
+     * Pasa todas las protecciones de un dueño a otro. Recorre solo las del
+     * dueño anterior (índice por dueño). Las de mundos no cargados: ver
+     * PersistenceManager.transferirInactivas().
+     *
+     * @return cuántas protecciones cambiaron de dueño
+     */
+    public synchronized int transferirTodas(UUID anterior, UUID nuevoDueno) {
+        int cambiadas = 0;
+        for (ProtectionRecord rec : resolver(porDueno.get(anterior))) {
+            if (transferir(rec, nuevoDueno))
+                cambiadas++;
         }
+        return cambiadas;
+    }
+
+    public synchronized void cambiarFlag(ProtectionRecord rec, String flag, boolean valor) {
+        rec.setFlag(flag, valor);
+        version++;
+        for (ObservadorRegistro o : observadores)
+            o.alCambiarFlag(rec, flag, valor);
+    }
+
+    // ---------------------------------------------------------------
+    // Observadores
+    // ---------------------------------------------------------------
+
+    public void agregarObservador(ObservadorRegistro observador) {
+        observadores.add(observador);
+    }
+
+    public void quitarObservador(ObservadorRegistro observador) {
+        observadores.remove(observador);
     }
 
     // ---------------------------------------------------------------
@@ -137,79 +358,431 @@ public final class ProtectionRegistry {
      * ¿Existe una protección exactamente en esta ubicación?
      */
     public boolean existeEn(Location ubicacion) {
-        return porUbicacion.containsKey(ProtectionRecord.clave(ubicacion));
+        return obtenerEn(ubicacion) != null;
+    }
+
+    public boolean existeEn(World mundo, int x, int y, int z) {
+        return obtenerEn(mundo, x, y, z) != null;
     }
 
     /**
      * Obtiene la protección en esta ubicación exacta. Puede ser null.
      */
     public ProtectionRecord obtenerEn(Location ubicacion) {
-        return porUbicacion.get(ProtectionRecord.clave(ubicacion));
+        return obtenerEn(ubicacion.getWorld(), ubicacion.getBlockX(), ubicacion.getBlockY(), ubicacion.getBlockZ());
+    }
+
+    /** Protección en el bloque exacto, o null. No reserva memoria. */
+    public ProtectionRecord obtenerEn(World mundo, int x, int y, int z) {
+        LongHashMap<ProtectionRecord> bloques = mundo != null ? porUbicacion.get(mundo.getUID()) : null;
+        return bloques != null ? bloques.get(LongHashMap.empaquetarBloque(x, y, z)) : null;
     }
 
     /**
      * Busca TODAS las protecciones cuyo cubo contiene el punto dado.
      * OPTIMIZADO: Solo revisa protecciones indexadas en el chunk del punto.
      * Complejidad: O(k) donde k = protecciones en ese chunk, no todas.
+     * Si ninguna protección toca el chunk, no reserva memoria.
      */
     public List<ProtectionRecord> buscarContenedoras(Location punto) {
-        if (punto.getWorld() == null)
+        EnumMap<ProtectionType, TypeIndex> porTipo = indicesDe(punto.getWorld());
+        if (porTipo == null)
             return Collections.emptyList();
 
-        String mundo = punto.getWorld().getName();
-        int chunkX = punto.getBlockX() >> 4;
-        int chunkZ = punto.getBlockZ() >> 4;
-        String chunkKey = mundo + ":" + chunkX + ":" + chunkZ;
+        int x = punto.getBlockX();
+        int z = punto.getBlockZ();
+        List<ProtectionRecord> resultado = null;
+        for (TypeIndex indice : porTipo.values()) {
+            resultado = acumular(indice.pequenas.candidatas(x, z), x, z, resultado);
+            resultado = acumular(indice.grandes.candidatas(x, z), x, z, resultado);
+        }
+        return resultado != null ? resultado : Collections.emptyList();
+    }
 
-        Set<String> clavesEnChunk = porChunk.get(chunkKey);
-        if (clavesEnChunk == null || clavesEnChunk.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * Ejecuta la acción para cada protección cuyo cubo contiene la columna
+     * (x, z) del mundo. Sin listas intermedias: si la acción no captura
+     * estado, la consulta no reserva memoria.
+     */
+    public void forEachContenedora(World mundo, int x, int z, Consumer<? super ProtectionRecord> accion) {
+        ResumenChunks.Resumen resumen = resumenEn(mundo, x, z);
+        if (resumen == null)
+            return;
+        EnumMap<ProtectionType, TypeIndex> porTipo = indicesDe(mundo);
+        if (porTipo == null)
+            return;
+        for (ProtectionType tipo : TIPOS) {
+            if (!resumen.tiene(tipo))
+                continue;
+            ProtectionRecord unica = resumen.unica(tipo);
+            if (unica != null) {
+                accion.accept(unica);
+                continue;
+            }
+            TypeIndex indice = porTipo.get(tipo);
+            if (indice == null)
+                continue;
+            recorrer(indice.pequenas.candidatas(x, z), x, z, accion);
+            recorrer(indice.grandes.candidatas(x, z), x, z, accion);
         }
+    }
 
-        List<ProtectionRecord> resultado = new ArrayList<>();
-        for (String clave : clavesEnChunk) {
-            ProtectionRecord rec = porUbicacion.get(clave);
-            if (rec != null && rec.getCubo().contiene(punto)) {
-                resultado.add(rec);
+    /**
+     * Igual que {@link #forEachContenedora(World, int, int, Consumer)}, y
+     * además deja en {@code estable} un rectángulo alrededor de (x, z) donde
+     * las contenedoras son las mismas. Nunca pasa de la celda del índice
+     * (un chunk): fuera de ella las candidatas son otras.
+     * Vale hasta que se registra una protección que lo intersecta.
+     */
+    public void forEachContenedora(World mundo, int x, int z, AreaColumnas estable,
+            Consumer<? super ProtectionRecord> accion) {
+        estable.todoElMundo();
+        EnumMap<ProtectionType, TypeIndex> porTipo = indicesDe(mundo);
+        if (porTipo == null)
+            return;
+        // El resumen es por chunk: sin más datos, el área es el chunk
+        estable.recortarCelda(x, z, GridIndex.BITS_CHUNK);
+        ResumenChunks.Resumen resumen = resumenEn(mundo, x, z);
+        if (resumen == null)
+            return;
+        for (ProtectionType tipo : TIPOS) {
+            if (!resumen.tiene(tipo))
+                continue;
+            ProtectionRecord unica = resumen.unica(tipo);
+            if (unica != null) {
+                accion.accept(unica); // cubre el chunk entero: no recorta
+                continue;
             }
+            TypeIndex indice = porTipo.get(tipo);
+            if (indice == null)
+                continue;
+            recorrer(indice.pequenas, x, z, estable, accion);
+            recorrer(indice.grandes, x, z, estable, accion);
         }
-        return resultado;
+    }
+
+    /**
+     * Igual que {@link #forEachContenedora(World, int, int, Consumer)} pero
+     * solo sobre protecciones del tipo dado: los chunks sin protecciones de
+     * ese tipo se descartan con una sola búsqueda.
+     */
+    public void forEachContenedora(World mundo, int x, int z, ProtectionType tipo,
+            Consumer<? super ProtectionRecord> accion) {
+        ResumenChunks.Resumen resumen = resumenEn(mundo, x, z);
+        if (resumen == null || !resumen.tiene(tipo))
+            return;
+        ProtectionRecord unica = resumen.unica(tipo);
+        if (unica != null) {
+            accion.accept(unica);
+            return;
+        }
+        TypeIndex indice = indiceDe(mundo, tipo);
+        if (indice == null)
+            return;
+        recorrer(indice.pequenas.candidatas(x, z), x, z, accion);
+        recorrer(indice.grandes.candidatas(x, z), x, z, accion);
+    }
+
+    /**
+     * ¿Hay alguna protección del tipo dado que contenga la columna (x, z)?
+     * Corta en la primera coincidencia. No reserva memoria.
+     */
+    public boolean hayContenedora(World mundo, int x, int z, ProtectionType tipo) {
+        return primeraContenedora(mundo, x, z, tipo) != null;
+    }
+
+    /**
+     * ¿Alguna protección del tipo (de cualquiera, con null) toca el chunk
+     * de (x, z)? Solo mira el resumen por chunk: false es definitivo, true
+     * hay que confirmarlo con una consulta por columna. No reserva memoria.
+     */
+    public boolean hayEnChunk(World mundo, int x, int z, ProtectionType tipo) {
+        ResumenChunks.Resumen resumen = resumenEn(mundo, x, z);
+        return resumen != null && (tipo == null || resumen.tiene(tipo));
+    }
+
+    /**
+     * Primera protección del tipo dado que contiene la columna (x, z), o null.
+     * No reserva memoria.
+     */
+    public ProtectionRecord primeraContenedora(World mundo, int x, int z, ProtectionType tipo) {
+        return primeraContenedora(mundo, x, z, tipo, null);
+    }
+
+    /**
+     * Primera protección del tipo dado que contiene la columna (x, z) y
+     * cumple el filtro, o null. El filtro solo se evalúa sobre protecciones
+     * que ya pasaron el chequeo de tipo y coordenadas.
+     */
+    public ProtectionRecord primeraContenedora(World mundo, int x, int z, ProtectionType tipo,
+            Predicate<? super ProtectionRecord> filtro) {
+        ResumenChunks.Resumen resumen = resumenEn(mundo, x, z);
+        if (resumen == null || !resumen.tiene(tipo))
+            return null;
+        ProtectionRecord unica = resumen.unica(tipo);
+        if (unica != null)
+            return filtro == null || filtro.test(unica) ? unica : null;
+        TypeIndex indice = indiceDe(mundo, tipo);
+        if (indice == null)
+            return null;
+        ProtectionRecord rec = primera(indice.pequenas.candidatas(x, z), x, z, filtro);
+        return rec != null ? rec : primera(indice.grandes.candidatas(x, z), x, z, filtro);
+    }
+
+    /**
+     * Ejecuta la acción para cada protección cuyo bloque está en el chunk
+     * (cx, cz). Todo cubo cubre el chunk de su propio bloque, así que basta
+     * con las candidatas de ese chunk. No reserva memoria.
+     */
+    public void forEachEnChunk(World mundo, int cx, int cz, Consumer<? super ProtectionRecord> accion) {
+        EnumMap<ProtectionType, TypeIndex> porTipo = indicesDe(mundo);
+        ResumenChunks resumen = mundo != null ? resumenes.get(mundo.getUID()) : null;
+        if (porTipo == null || resumen == null || resumen.get(cx, cz) == null)
+            return;
+        int x = cx << 4;
+        int z = cz << 4;
+        for (TypeIndex indice : porTipo.values()) {
+            recorrerChunk(indice.pequenas.candidatas(x, z), cx, cz, accion);
+            recorrerChunk(indice.grandes.candidatas(x, z), cx, cz, accion);
+        }
+    }
+
+    /**
+     * Protecciones del tipo dado que cumplen el filtro y cuyo cubo toca el
+     * rectángulo de columnas [minX, maxX] x [minZ, maxZ], sin repetidas.
+     * Para eventos sobre muchos bloques (explosiones, pistones): una sola
+     * consulta por la caja de todos ellos, y cada bloque se compara después
+     * solo contra estas. Lista vacía compartida si no hay ninguna.
+     */
+    public List<ProtectionRecord> buscarEnArea(World mundo, int minX, int minZ, int maxX, int maxZ,
+            ProtectionType tipo, Predicate<? super ProtectionRecord> filtro) {
+        TypeIndex indice = indiceDe(mundo, tipo);
+        if (indice == null)
+            return Collections.emptyList();
+        List<ProtectionRecord> resultado = acumularEnArea(indice.pequenas, minX, minZ, maxX, maxZ, filtro, null);
+        resultado = acumularEnArea(indice.grandes, minX, minZ, maxX, maxZ, filtro, resultado);
+        return resultado != null ? resultado : Collections.emptyList();
     }
 
     /**
      * Todas las protecciones activas en un mundo específico.
      */
     public List<ProtectionRecord> todosPorMundo(String nombreMundo) {
-        Set<String> claves = porMundo.get(nombreMundo);
-        if (claves == null)
-            return Collections.emptyList();
+        return resolver(porMundo.get(nombreMundo));
+    }
+
+    /**
+     * Protecciones activas colocadas por el jugador.
+     */
+    public List<ProtectionRecord> todasPorDueno(UUID dueno) {
+        return resolver(porDueno.get(dueno));
+    }
 
-        return claves.stream()
-                .map(porUbicacion::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    /**
+     * Cantidad de protecciones activas colocadas por el jugador.
+     */
+    public int cantidadPorDueno(UUID dueno) {
+        Set<UUID> ids = porDueno.get(dueno);
+        return ids != null ? ids.size() : 0;
+    }
+
+    /**
+     * Protecciones activas donde el jugador tiene algún rol, dueño incluido.
+     */
+    public List<ProtectionRecord> todasPorMiembro(UUID jugador) {
+        return resolver(porMiembro.get(jugador));
+    }
+
+    public int cantidadPorMiembro(UUID jugador) {
+        Set<UUID> ids = porMiembro.get(jugador);
+        return ids != null ? ids.size() : 0;
     }
 
     /**
      * Todas las protecciones activas en todo el servidor.
      */
     public List<ProtectionRecord> todas() {
-        return new ArrayList<>(porUbicacion.values());
+        return new ArrayList<>(porId.values());
     }
 
     /**
      * Cantidad total de protecciones activas.
      */
     public int cantidad() {
-        return porUbicacion.size();
+        return porId.size();
+    }
+
+    /**
+     * Contador de mutaciones. Dos lecturas iguales garantizan que el
+     * registro no cambió entre ambas.
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
      * Limpia todo el registro. Solo para uso en shutdown/reload.
      */
-    public void limpiar() {
+    public synchronized void limpiar() {
+        porId.clear();
         porUbicacion.clear();
         porChunk.clear();
+        resumenes.clear();
         porMundo.clear();
+        porDueno.clear();
+        porMiembro.clear();
+        version++;
+    }
+
+    // ---------------------------------------------------------------
+    // Utilidades privadas
+    // ---------------------------------------------------------------
+
+    private boolean estaRegistrado(ProtectionRecord rec) {
+        return porId.get(rec.getId()) == rec;
+    }
+
+    private static long claveDe(ProtectionRecord rec) {
+        CubeRegion cubo = rec.getCubo();
+        return LongHashMap.empaquetarBloque(cubo.getCenterX(), cubo.getCenterY(), cubo.getCenterZ());
+    }
+
+    /** Quita el record de los índices por dueño y por miembro. */
+    private void desindexarJugadores(ProtectionRecord rec) {
+        UUID id = rec.getId();
+        quitarId(porDueno, rec.getColocadoPor(), id);
+        rec.forEachMiembro((jugador, rol) -> quitarId(porMiembro, jugador, id));
+    }
+
+    private static <K> void agregarId(Map<K, Set<UUID>> indice, K clave, UUID id) {
+        indice.computeIfAbsent(clave, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    private static <K> void quitarId(Map<K, Set<UUID>> indice, K clave, UUID id) {
+        Set<UUID> ids = indice.get(clave);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty())
+                indice.remove(clave);
+        }
+    }
+
+    /** Records de un set de ids (copia: el set puede cambiar). */
+    private List<ProtectionRecord> resolver(Set<UUID> ids) {
+        if (ids == null)
+            return Collections.emptyList();
+
+        List<ProtectionRecord> resultado = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            ProtectionRecord rec = porId.get(id);
+            if (rec != null)
+                resultado.add(rec);
+        }
+        return resultado;
+    }
+
+    private EnumMap<ProtectionType, TypeIndex> indicesDe(World mundo) {
+        return mundo != null ? porChunk.get(mundo.getUID()) : null;
+    }
+
+    private ResumenChunks.Resumen resumenEn(World mundo, int x, int z) {
+        ResumenChunks resumen = mundo != null ? resumenes.get(mundo.getUID()) : null;
+        return resumen != null ? resumen.get(x >> 4, z >> 4) : null;
+    }
+
+    private TypeIndex indiceDe(World mundo, ProtectionType tipo) {
+        EnumMap<ProtectionType, TypeIndex> porTipo = indicesDe(mundo);
+        return porTipo != null ? porTipo.get(tipo) : null;
+    }
+
+    /** Primera candidata que contiene (x, z) y cumple el filtro (si lo hay). */
+    private static ProtectionRecord primera(ProtectionRecord[] candidatas, int x, int z,
+            Predicate<? super ProtectionRecord> filtro) {
+        if (candidatas == null)
+            return null;
+        for (ProtectionRecord rec : candidatas) {
+            if (rec.getCubo().contieneColumna(x, z) && (filtro == null || filtro.test(rec)))
+                return rec;
+        }
+        return null;
+    }
+
+    private static List<ProtectionRecord> acumular(ProtectionRecord[] candidatas, int x, int z,
+            List<ProtectionRecord> resultado) {
+        if (candidatas == null)
+            return resultado;
+        for (ProtectionRecord rec : candidatas) {
+            if (rec.getCubo().contieneColumna(x, z)) {
+                if (resultado == null)
+                    resultado = new ArrayList<>(candidatas.length);
+                resultado.add(rec);
+            }
+        }
+        return resultado;
+    }
+
+    private static void recorrerChunk(ProtectionRecord[] candidatas, int cx, int cz,
+            Consumer<? super ProtectionRecord> accion) {
+        if (candidatas == null)
+            return;
+        for (ProtectionRecord rec : candidatas) {
+            CubeRegion cubo = rec.getCubo();
+            if (cubo.getCenterX() >> 4 == cx && cubo.getCenterZ() >> 4 == cz)
+                accion.accept(rec);
+        }
+    }
+
+    private static void recorrer(ProtectionRecord[] candidatas, int x, int z,
+            Consumer<? super ProtectionRecord> accion) {
+        if (candidatas == null)
+            return;
+        for (ProtectionRecord rec : candidatas) {
+            if (rec.getCubo().contieneColumna(x, z))
+                accion.accept(rec);
+        }
+    }
+
+    private static void recorrer(SpatialIndex indice, int x, int z, AreaColumnas estable,
+            Consumer<? super ProtectionRecord> accion) {
+        estable.recortarCelda(x, z, indice.bitsCelda());
+        ProtectionRecord[] candidatas = indice.candidatas(x, z);
+        if (candidatas == null)
+            return;
+        for (ProtectionRecord rec : candidatas) {
+            CubeRegion cubo = rec.getCubo();
+            if (cubo.contieneColumna(x, z)) {
+                estable.recortarDentro(cubo);
+                accion.accept(rec);
+            } else {
+                estable.recortarFuera(cubo, x, z);
+            }
+        }
+    }
+
+    private static List<ProtectionRecord> acumularEnArea(SpatialIndex indice, int minX, int minZ, int maxX, int maxZ,
+            Predicate<? super ProtectionRecord> filtro, List<ProtectionRecord> resultado) {
+        int bits = indice.bitsCelda();
+        for (int cx = minX >> bits; cx <= maxX >> bits; cx++) {
+            for (int cz = minZ >> bits; cz <= maxZ >> bits; cz++) {
+                ProtectionRecord[] candidatas = indice.candidatas(cx << bits, cz << bits);
+                if (candidatas == null)
+                    continue;
+                for (ProtectionRecord rec : candidatas) {
+                    CubeRegion cubo = rec.getCubo();
+                    if (cubo.getMaxX() < minX || cubo.getMinX() > maxX
+                            || cubo.getMaxZ() < minZ || cubo.getMinZ() > maxZ)
+                        continue;
+                    // Una protección grande aparece en varias celdas
+                    if (resultado != null && resultado.contains(rec))
+                        continue;
+                    if (filtro != null && !filtro.test(rec))
+                        continue;
+                    if (resultado == null)
+                        resultado = new ArrayList<>();
+                    resultado.add(rec);
+                }
+            }
+        }
+        return resultado;
     }
 }
@@ -0,0 +1,117 @@
+package com.protectium.registry;
+
+import com.protectium.protection.CubeRegion;
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+
+/**
+ * Resumen por chunk de las protecciones de un mundo, para decidir sin
+ * recorrer candidatas ni comparar coordenadas en los casos comunes:
+ * - Chunk sin resumen: ninguna protección lo toca.
+ * - Tipo cubierto por una sola protección que abarca el chunk entero: la
+ *   contenedora de cualquier columna del chunk es esa.
+ * - Mixto: hay que consultar el índice espacial del tipo.
+ *
+ * Cada Resumen es inmutable y se reemplaza al mutar, igual que las celdas
+ * de GridIndex. Las mutaciones las serializa ProtectionRegistry; las
+ * lecturas son del hilo principal.
+ */
+final class ResumenChunks {
+
+    private static final ProtectionType[] TIPOS = ProtectionType.values();
+
+    private final LongHashMap<Resumen> chunks = new LongHashMap<>();
+
+    /** Resumen del chunk (cx, cz), o null si ninguna protección lo toca. */
+    Resumen get(int cx, int cz) {
+        return chunks.get(LongHashMap.empaquetar(cx, cz));
+    }
+
+    /**
+     * Recalcula el tipo del record en cada chunk que toca su cubo, a partir
+     * del índice de ese tipo ya actualizado (null si quedó vacío).
+     */
+    void actualizar(ProtectionRecord record, TypeIndex indice) {
+        CubeRegion cubo = record.getCubo();
+        int tipo = record.getTipo().ordinal();
+        for (int cx = cubo.getMinX() >> 4; cx <= cubo.getMaxX() >> 4; cx++) {
+            for (int cz = cubo.getMinZ() >> 4; cz <= cubo.getMaxZ() >> 4; cz++) {
+                long clave = LongHashMap.empaquetar(cx, cz);
+                Resumen nuevo = Resumen.con(chunks.get(clave), tipo, indice, cx, cz);
+                if (nuevo == null)
+                    chunks.remove(clave);
+                else
+                    chunks.put(clave, nuevo);
+            }
+        }
+    }
+
+    boolean estaVacio() {
+        return chunks.isEmpty();
+    }
+
+    /** Tipos presentes en un chunk y, por tipo, la protección que lo cubre entero si es la única. */
+    static final class Resumen {
+
+        // Bit por ordinal de ProtectionType
+        private final int tipos;
+        private final ProtectionRecord[] unicas;
+
+        private Resumen(int tipos, ProtectionRecord[] unicas) {
+            this.tipos = tipos;
+            this.unicas = unicas;
+        }
+
+        /** ¿Alguna protección del tipo toca el chunk? */
+        boolean tiene(ProtectionType tipo) {
+            return (tipos & (1 << tipo.ordinal())) != 0;
+        }
+
+        /**
+         * La única protección del tipo en el chunk si lo cubre entero, o
+         * null (no hay ninguna, o hay que consultar el índice).
+         */
+        ProtectionRecord unica(ProtectionType tipo) {
+            return unicas[tipo.ordinal()];
+        }
+
+        /** Resumen con el tipo recalculado; null si el chunk queda sin protecciones. */
+        static Resumen con(Resumen anterior, int tipo, TypeIndex indice, int cx, int cz) {
+            int minX = cx << 4;
+            int minZ = cz << 4;
+            int tocan = 0;
+            ProtectionRecord ultima = null;
+            if (indice != null) {
+                for (SpatialIndex backend : new SpatialIndex[] { indice.pequenas, indice.grandes }) {
+                    ProtectionRecord[] candidatas = backend.candidatas(minX, minZ);
+                    if (candidatas == null)
+                        continue;
+                    for (ProtectionRecord rec : candidatas) {
+                        CubeRegion c = rec.getCubo();
+                        if (c.getMaxX() >= minX && c.getMinX() <= minX + 15
+                                && c.getMaxZ() >= minZ && c.getMinZ() <= minZ + 15) {
+                            tocan++;
+                            ultima = rec;
+                        }
+                    }
+                }
+            }
+            boolean cubre = tocan == 1 && cubreChunk(ultima.getCubo(), minX, minZ);
+
+            int bit = 1 << tipo;
+            int tipos = anterior != null ? anterior.tipos : 0;
+            tipos = tocan > 0 ? tipos | bit : tipos & ~bit;
+            if (tipos == 0)
+                return null;
+
+            ProtectionRecord[] unicas = anterior != null ? anterior.unicas.clone() : new ProtectionRecord[TIPOS.length];
+            unicas[tipo] = cubre ? ultima : null;
+            return new Resumen(tipos, unicas);
+        }
+
+        private static boolean cubreChunk(CubeRegion cubo, int minX, int minZ) {
+            return cubo.getMinX() <= minX && cubo.getMaxX() >= minX + 15
+                    && cubo.getMinZ() <= minZ && cubo.getMaxZ() >= minZ + 15;
+        }
+    }
+}
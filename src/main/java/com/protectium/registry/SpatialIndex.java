@@ -0,0 +1,39 @@
+package com.protectium.registry;
+
+import com.protectium.protection.ProtectionRecord;
+
+/**
+ * Backend espacial intercambiable para un mundo y tipo de protección.
+ * Dado un punto (x, z), entrega las protecciones candidatas a contenerlo;
+ * el chequeo fino de coordenadas lo hace ProtectionRegistry.
+ *
+ * Contrato: candidatas() no reserva memoria y el arreglo retornado es
+ * compartido (no se modifica). Las mutaciones las serializa el registro.
+ */
+public interface SpatialIndex {
+
+    /** Indexa la protección en todas las celdas que su cubo toca. */
+    void agregar(ProtectionRecord record);
+
+    /** Quita la protección de todas las celdas donde estaba indexada. */
+    void quitar(ProtectionRecord record);
+
+    /**
+     * Protecciones indexadas en la celda que contiene el bloque (x, z),
+     * o null si no hay ninguna.
+     */
+    ProtectionRecord[] candidatas(int x, int z);
+
+    /**
+     * Lado de la celda, en bits (2^bits bloques). candidatas() retorna lo
+     * mismo para todas las columnas de una celda alineada a ese tamaño.
+     */
+    int bitsCelda();
+
+    /** Cantidad de celdas con al menos una protección. */
+    int celdasOcupadas();
+
+    boolean estaVacio();
+
+    void limpiar();
+}
@@ -0,0 +1,43 @@
+package com.protectium.registry;
+
+import com.protectium.protection.ProtectionRecord;
+
+/**
+ * Índice de un tipo de protección dentro de un mundo.
+ *
+ * Reparte las protecciones entre dos backends según su radio:
+ * - Pequeñas: grilla por chunk. Pocas celdas por protección y pocas
+ *   candidatas por consulta.
+ * - Grandes (radio mayor al umbral): grilla por región de 512 bloques.
+ *   Un cubo de radio 256 toca como mucho 3x3 celdas en vez de más de mil
+ *   chunks, así que registrar/eliminar es barato y no infla la memoria.
+ *
+ * El umbral es fijo durante la vida del registro: una protección siempre se
+ * quita del mismo backend donde se agregó.
+ */
+final class TypeIndex {
+
+    final SpatialIndex pequenas = new GridIndex(GridIndex.BITS_CHUNK);
+    final SpatialIndex grandes = new GridIndex(GridIndex.BITS_REGION);
+    private final int radioGrandes;
+
+    TypeIndex(int radioGrandes) {
+        this.radioGrandes = radioGrandes;
+    }
+
+    void agregar(ProtectionRecord record) {
+        backendPara(record).agregar(record);
+    }
+
+    void quitar(ProtectionRecord record) {
+        backendPara(record).quitar(record);
+    }
+
+    boolean estaVacio() {
+        return pequenas.estaVacio() && grandes.estaVacio();
+    }
+
+    private SpatialIndex backendPara(ProtectionRecord record) {
+        return record.getRadio() > radioGrandes ? grandes : pequenas;
+    }
+}
@@ -0,0 +1,31 @@
+package com.protectium.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Escritura segura: se escribe a un temporal junto al destino y luego se
+ * renombra encima. Un crash a mitad de guardado deja el archivo anterior.
+ */
+final class ArchivosAtomicos {
+
+    private ArchivosAtomicos() {
+    }
+
+    /** Temporal en la misma carpeta (el rename atómico no cruza sistemas de archivos). */
+    static File temporalPara(File destino) {
+        return new File(destino.getParentFile(), destino.getName() + ".tmp");
+    }
+
+    static void reemplazar(File temporal, File destino) throws IOException {
+        try {
+            Files.move(temporal.toPath(), destino.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporal.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
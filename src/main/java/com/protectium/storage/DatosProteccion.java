@@ -0,0 +1,138 @@
+package com.protectium.storage;
+
+import com.protectium.protection.CubeRegion;
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Forma plana e inmutable de una protección tal como se guarda en disco.
+ * No referencia objetos de Bukkit: el mundo va por nombre, así los
+ * formatos pueden leer y escribir sin servidor ni mundos cargados.
+ */
+public final class DatosProteccion {
+
+    private final UUID id;
+    private final ProtectionType tipo;
+    private final UUID colocadoPor;
+    private final long marcaTiempo;
+    private final int radio;
+    private final String mundo;
+    private final int x, y, z;
+    private final Map<UUID, ProtectionRecord.MemberRole> miembros;
+    private final Map<String, Boolean> flags;
+
+    /**
+     * @param tipo puede ser null si el archivo trae un tipo desconocido;
+     *             la restauración lo descarta con aviso
+     */
+    public DatosProteccion(UUID id, ProtectionType tipo, UUID colocadoPor, long marcaTiempo, int radio,
+            String mundo, int x, int y, int z,
+            Map<UUID, ProtectionRecord.MemberRole> miembros, Map<String, Boolean> flags) {
+        this.id = id;
+        this.tipo = tipo;
+        this.colocadoPor = colocadoPor;
+        this.marcaTiempo = marcaTiempo;
+        this.radio = radio;
+        this.mundo = mundo;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.miembros = Map.copyOf(miembros);
+        this.flags = Map.copyOf(flags);
+    }
+
+    /** Copia el estado actual de una protección activa. */
+    public static DatosProteccion desde(ProtectionRecord rec) {
+        CubeRegion cubo = rec.getCubo();
+        return new DatosProteccion(rec.getId(), rec.getTipo(), rec.getColocadoPor(), rec.getMarcaTiempo(),
+                cubo.getRadio(), cubo.getWorldName(), cubo.getCenterX(), cubo.getCenterY(), cubo.getCenterZ(),
+                rec.getMembers(), rec.getFlags());
+    }
+
+    /** Reconstruye la protección en el mundo ya resuelto. */
+    public ProtectionRecord crearRegistro(World world) {
+        return new ProtectionRecord(id, tipo, new Location(world, x, y, z), radio,
+                colocadoPor, marcaTiempo, miembros, flags);
+    }
+
+    /** Copia con el miembro agregado, cambiado o quitado (rol null). */
+    public DatosProteccion conMiembro(UUID jugador, ProtectionRecord.MemberRole rol) {
+        Map<UUID, ProtectionRecord.MemberRole> nuevos = new HashMap<>(miembros);
+        if (rol != null)
+            nuevos.put(jugador, rol);
+        else
+            nuevos.remove(jugador);
+        return new DatosProteccion(id, tipo, colocadoPor, marcaTiempo, radio, mundo, x, y, z, nuevos, flags);
+    }
+
+    /**
+     * Copia con otro dueño. Igual que ProtectionRecord.transferirA(): el
+     * anterior deja de ser miembro y el nuevo queda como OWNER.
+     */
+    public DatosProteccion conDueno(UUID nuevoDueno) {
+        Map<UUID, ProtectionRecord.MemberRole> nuevos = new HashMap<>(miembros);
+        nuevos.remove(colocadoPor);
+        nuevos.put(nuevoDueno, ProtectionRecord.MemberRole.OWNER);
+        return new DatosProteccion(id, tipo, nuevoDueno, marcaTiempo, radio, mundo, x, y, z, nuevos, flags);
+    }
+
+    public DatosProteccion conFlag(String flag, boolean valor) {
+        Map<String, Boolean> nuevos = new HashMap<>(flags);
+        nuevos.put(flag, valor);
+        return new DatosProteccion(id, tipo, colocadoPor, marcaTiempo, radio, mundo, x, y, z, miembros, nuevos);
+    }
+
+    // ---------------------------------------------------------------
+    // Getters
+    // ---------------------------------------------------------------
+
+    public UUID getId() {
+        return id;
+    }
+
+    public ProtectionType getTipo() {
+        return tipo;
+    }
+
+    public UUID getColocadoPor() {
+        return colocadoPor;
+    }
+
+    public long getMarcaTiempo() {
+        return marcaTiempo;
+    }
+
+    public int getRadio() {
+        return radio;
+    }
+
+    public String getMundo() {
+        return mundo;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getZ() {
+        return z;
+    }
+
+    public Map<UUID, ProtectionRecord.MemberRole> getMiembros() {
+        return miembros;
+    }
+
+    public Map<String, Boolean> getFlags() {
+        return flags;
+    }
+}
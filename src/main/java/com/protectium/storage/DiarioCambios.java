@@ -0,0 +1,385 @@
+package com.protectium.storage;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import com.protectium.registry.ObservadorRegistro;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de solo-anexar con cada mutación del registro desde el último
+ * snapshot. Colocar una protección cuesta una entrada de unos cientos de
+ * bytes en vez de reescribir el archivo completo.
+ *
+ * Cada entrada: int largo, int CRC32 del contenido, contenido. Una entrada
+ * cortada por un crash se detecta al leer y se descarta junto con el resto
+ * de la cola.
+ *
+ * Compactación (la hace PersistenceManager): rotar() mueve el journal
+ * actual a *.anterior, se escribe el snapshot y luego descartarAnterior().
+ * Si el snapshot falla, *.anterior se conserva y la próxima rotación le
+ * anexa lo nuevo. Las entradas fijan estado (no lo incrementan), así que
+ * reaplicar una entrada ya incluida en el snapshot no cambia el resultado.
+ */
+public final class DiarioCambios implements ObservadorRegistro {
+
+    public static final String ARCHIVO = "protections.journal";
+
+    private static final byte OP_REGISTRAR = 1;
+    private static final byte OP_ELIMINAR = 2;
+    private static final byte OP_MIEMBRO = 3;
+    private static final byte OP_FLAG = 4;
+
+    private final File archivo;
+    private final File anterior;
+    private final Logger logger;
+    private FileChannel canal;
+    private int entradas;
+    private boolean errorReportado;
+
+    // Aviso al llegar a tantas entradas sin compactar (una vez por rotación)
+    private int umbralLleno = Integer.MAX_VALUE;
+    private Runnable alLlenarse;
+
+    public DiarioCambios(File dataFolder, Logger logger) {
+        this.archivo = new File(dataFolder, ARCHIVO);
+        this.anterior = new File(dataFolder, ARCHIVO + ".anterior");
+        this.logger = logger;
+    }
+
+    // ---------------------------------------------------------------
+    // Observador: una entrada por mutación
+    // ---------------------------------------------------------------
+
+    @Override
+    public void alRegistrar(ProtectionRecord rec) {
+        anotar(DatosProteccion.desde(rec));
+    }
+
+    @Override
+    public void alEliminar(ProtectionRecord rec) {
+        anexar(OP_ELIMINAR, rec.getId(), out -> {
+        });
+    }
+
+    @Override
+    public void alCambiarMiembro(ProtectionRecord rec, UUID jugador, ProtectionRecord.MemberRole rol) {
+        anexar(OP_MIEMBRO, rec.getId(), out -> {
+            escribirUuid(out, jugador);
+            out.writeBoolean(rol != null);
+            if (rol != null)
+                out.writeUTF(rol.name());
+        });
+    }
+
+    @Override
+    public void alCambiarFlag(ProtectionRecord rec, String flag, boolean valor) {
+        anexar(OP_FLAG, rec.getId(), out -> {
+            out.writeUTF(flag);
+            out.writeBoolean(valor);
+        });
+    }
+
+    /** Cambia dueño y miembros a la vez: se anota la protección entera. */
+    @Override
+    public void alCambiarDueno(ProtectionRecord rec, UUID anterior) {
+        alRegistrar(rec);
+    }
+
+    /**
+     * Anota la protección entera. Para cambios sobre protecciones en reposo,
+     * que no pasan por el registro.
+     */
+    public void anotar(DatosProteccion datos) {
+        anexar(OP_REGISTRAR, datos.getId(), out -> escribirDatos(out, datos));
+    }
+
+    /** Cargar o descargar un mundo no cambia datos: no se anota. */
+    @Override
+    public void alActivar(ProtectionRecord rec) {
+    }
+
+    @Override
+    public void alDesactivar(ProtectionRecord rec) {
+    }
+
+    // ---------------------------------------------------------------
+    // Ciclo de vida
+    // ---------------------------------------------------------------
+
+    /**
+     * Aplica el journal (primero *.anterior, luego el actual) sobre los
+     * datos del snapshot y deja el archivo listo para anexar. Las colas
+     * corruptas se truncan para que las entradas nuevas queden legibles.
+     */
+    public synchronized List<DatosProteccion> recuperar(List<DatosProteccion> snapshot) throws IOException {
+        Map<UUID, DatosProteccion> porId = new LinkedHashMap<>();
+        for (DatosProteccion d : snapshot)
+            porId.put(d.getId(), d);
+
+        int aplicadas = reproducir(anterior, porId) + reproducir(archivo, porId);
+        if (aplicadas > 0)
+            logger.info("§7 Journal: " + aplicadas + " cambios recuperados desde el último guardado.");
+
+        abrir();
+        return new ArrayList<>(porId.values());
+    }
+
+    /**
+     * Empieza un journal nuevo. Lo escrito hasta ahora queda en *.anterior
+     * hasta que el snapshot que lo incluye se guarde.
+     *
+     * Si la rotación falla, el canal se vuelve a abrir igual (sobre el
+     * archivo actual, que sigue entero): el journal nunca queda cerrado.
+     * Si la copia a *.anterior quedó a medias no se pierde nada: las
+     * entradas fijan estado, reaplicarlas da el mismo resultado.
+     */
+    public synchronized void rotar() throws IOException {
+        cerrarCanal();
+        try {
+            if (archivo.exists()) {
+                if (!anterior.exists()) {
+                    if (!archivo.renameTo(anterior))
+                        throw new IOException("No se pudo rotar " + archivo.getName());
+                } else {
+                    // Un snapshot previo falló: lo nuevo se suma a lo pendiente
+                    try (FileChannel origen = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+                            FileChannel destino = FileChannel.open(anterior.toPath(), StandardOpenOption.WRITE,
+                                    StandardOpenOption.APPEND)) {
+                        long pos = 0, total = origen.size();
+                        while (pos < total)
+                            pos += origen.transferTo(pos, total - pos, destino);
+                    }
+                    if (!archivo.delete())
+                        throw new IOException("No se pudo borrar " + archivo.getName());
+                }
+            }
+        } finally {
+            abrir();
+        }
+    }
+
+    /** El snapshot que incluye *.anterior ya está en disco. */
+    public synchronized void descartarAnterior() {
+        anterior.delete();
+    }
+
+    public synchronized void cerrar() {
+        cerrarCanal();
+    }
+
+    /**
+     * Llama a la acción (dentro del lock del journal: debe ser rápida)
+     * cuando las entradas sin compactar llegan al umbral.
+     */
+    public synchronized void alLlenarse(int umbral, Runnable accion) {
+        this.umbralLleno = umbral;
+        this.alLlenarse = accion;
+    }
+
+    /** Entradas anexadas desde la última rotación. */
+    public synchronized int getEntradas() {
+        return entradas;
+    }
+
+    // ---------------------------------------------------------------
+    // Escritura
+    // ---------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface Contenido {
+        void escribir(DataOutputStream out) throws IOException;
+    }
+
+    private void anexar(byte op, UUID id, Contenido contenido) {
+        ByteBuffer buffer;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // largo
+            out.writeInt(0); // CRC
+            out.writeByte(op);
+            escribirUuid(out, id);
+            contenido.escribir(out);
+
+            buffer = ByteBuffer.wrap(bytes.toByteArray());
+            int largo = buffer.capacity() - 8;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 8, largo);
+            buffer.putInt(0, largo);
+            buffer.putInt(4, (int) crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        synchronized (this) {
+            if (canal == null) {
+                reportarError("journal cerrado");
+                return;
+            }
+            try {
+                // Sin force(): write() ya está en el sistema operativo y
+                // sobrevive a un crash del proceso.
+                while (buffer.hasRemaining())
+                    canal.write(buffer);
+                if (++entradas == umbralLleno && alLlenarse != null)
+                    alLlenarse.run();
+            } catch (IOException e) {
+                reportarError(e.getMessage());
+            }
+        }
+    }
+
+    /** Solo el primer error hasta que el canal se vuelva a abrir. */
+    private void reportarError(String causa) {
+        if (errorReportado)
+            return;
+        errorReportado = true;
+        logger.severe("§c Error escribiendo journal: " + causa
+                + ". Los cambios se guardarán en el próximo guardado completo.");
+    }
+
+    private void abrir() throws IOException {
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        entradas = 0;
+        errorReportado = false;
+    }
+
+    private void cerrarCanal() {
+        if (canal == null)
+            return;
+        try {
+            canal.close();
+        } catch (IOException ignored) {
+        }
+        canal = null;
+    }
+
+    private static void escribirDatos(DataOutputStream out, DatosProteccion d) throws IOException {
+        out.writeUTF(d.getTipo().getConfigKey());
+        escribirUuid(out, d.getColocadoPor());
+        out.writeLong(d.getMarcaTiempo());
+        out.writeInt(d.getRadio());
+        out.writeUTF(d.getMundo());
+        out.writeInt(d.getX());
+        out.writeInt(d.getY());
+        out.writeInt(d.getZ());
+        out.writeInt(d.getMiembros().size());
+        for (Map.Entry<UUID, ProtectionRecord.MemberRole> e : d.getMiembros().entrySet()) {
+            escribirUuid(out, e.getKey());
+            out.writeUTF(e.getValue().name());
+        }
+        out.writeInt(d.getFlags().size());
+        for (Map.Entry<String, Boolean> e : d.getFlags().entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeBoolean(e.getValue());
+        }
+    }
+
+    private static void escribirUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    // ---------------------------------------------------------------
+    // Lectura
+    // ---------------------------------------------------------------
+
+    /** Aplica las entradas válidas del archivo y trunca lo ilegible. */
+    private int reproducir(File origen, Map<UUID, DatosProteccion> porId) throws IOException {
+        if (!origen.exists())
+            return 0;
+
+        byte[] todo = java.nio.file.Files.readAllBytes(origen.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(todo);
+        CRC32 crc = new CRC32();
+        int aplicadas = 0;
+
+        while (buffer.remaining() >= 8) {
+            int inicio = buffer.position();
+            int largo = buffer.getInt();
+            int esperado = buffer.getInt();
+            if (largo <= 0 || largo > buffer.remaining()) {
+                buffer.position(inicio);
+                break;
+            }
+            crc.reset();
+            crc.update(todo, buffer.position(), largo);
+            if ((int) crc.getValue() != esperado) {
+                buffer.position(inicio);
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(todo, buffer.position(), largo));
+            buffer.position(buffer.position() + largo);
+            try {
+                aplicar(in, porId);
+                aplicadas++;
+            } catch (IOException | RuntimeException e) {
+                logger.warning("§e Entrada de journal ilegible, se omite: " + e.getMessage());
+            }
+        }
+
+        if (buffer.position() < todo.length) {
+            logger.warning("§e " + origen.getName() + ": " + (todo.length - buffer.position())
+                    + " bytes finales incompletos, se descartan.");
+            try (FileChannel ch = FileChannel.open(origen.toPath(), StandardOpenOption.WRITE)) {
+                ch.truncate(buffer.position());
+            }
+        }
+        return aplicadas;
+    }
+
+    private static void aplicar(DataInputStream in, Map<UUID, DatosProteccion> porId) throws IOException {
+        byte op = in.readByte();
+        UUID id = leerUuid(in);
+        switch (op) {
+            case OP_REGISTRAR -> porId.put(id, leerDatos(in, id));
+            case OP_ELIMINAR -> porId.remove(id);
+            case OP_MIEMBRO -> {
+                UUID jugador = leerUuid(in);
+                ProtectionRecord.MemberRole rol = in.readBoolean()
+                        ? ProtectionRecord.MemberRole.valueOf(in.readUTF())
+                        : null;
+                porId.computeIfPresent(id, (k, d) -> d.conMiembro(jugador, rol));
+            }
+            case OP_FLAG -> {
+                String flag = in.readUTF();
+                boolean valor = in.readBoolean();
+                porId.computeIfPresent(id, (k, d) -> d.conFlag(flag, valor));
+            }
+            default -> throw new IOException("operación desconocida " + op);
+        }
+    }
+
+    private static DatosProteccion leerDatos(DataInputStream in, UUID id) throws IOException {
+        ProtectionType tipo = ProtectionType.fromString(in.readUTF());
+        UUID colocadoPor = leerUuid(in);
+        long marcaTiempo = in.readLong();
+        int radio = in.readInt();
+        String mundo = in.readUTF();
+        int x = in.readInt();
+        int y = in.readInt();
+        int z = in.readInt();
+        int nMiembros = in.readInt();
+        Map<UUID, ProtectionRecord.MemberRole> miembros = new HashMap<>();
+        for (int i = 0; i < nMiembros; i++)
+            miembros.put(leerUuid(in), ProtectionRecord.MemberRole.valueOf(in.readUTF()));
+        int nFlags = in.readInt();
+        Map<String, Boolean> flags = new HashMap<>();
+        for (int i = 0; i < nFlags; i++)
+            flags.put(in.readUTF(), in.readBoolean());
+        return new DatosProteccion(id, tipo, colocadoPor, marcaTiempo, radio, mundo, x, y, z, miembros, flags);
+    }
+
+    private static UUID leerUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,40 @@
+package com.protectium.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Formato de archivo para el snapshot completo de protecciones.
+ * Las implementaciones solo traducen bytes: escriben desde un
+ * SnapshotRegistro y leen a DatosProteccion. Resolver mundos y validar
+ * bloques es trabajo de PersistenceManager.
+ */
+public interface FormatoAlmacen {
+
+    /** Nombre del archivo dentro de la carpeta del plugin. */
+    String nombreArchivo();
+
+    /**
+     * Reemplaza el contenido del destino con estas protecciones.
+     * Si falla a mitad, el archivo anterior debe quedar intacto.
+     *
+     * @return bytes escritos
+     */
+    long escribir(SnapshotRegistro snapshot, File destino) throws IOException;
+
+    /**
+     * Lee todas las protecciones del archivo. Las entradas individuales
+     * ilegibles se omiten; un archivo corrupto lanza IOException.
+     */
+    List<DatosProteccion> leer(File origen) throws IOException;
+
+    /**
+     * Igual que {@link #leer(File)}, pudiendo repartir la decodificación
+     * en el pool. El orden del resultado es el mismo que sin pool.
+     */
+    default List<DatosProteccion> leer(File origen, ExecutorService pool) throws IOException {
+        return leer(origen);
+    }
+}
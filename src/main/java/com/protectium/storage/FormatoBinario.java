@@ -0,0 +1,367 @@
+package com.protectium.storage;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Formato binario compacto y versionado (protections.dat).
+ *
+ * Estructura (big-endian, DataOutputStream):
+ * <pre>
+ *   int    MAGIA ("PRTC")
+ *   short  VERSION
+ *   int    n cadenas, luego n × UTF       ← tabla de cadenas
+ *   int    n protecciones
+ *   int    n bloques, luego n × {         ← v2; en v1 van las protecciones directo
+ *            int n protecciones   int n bytes   protecciones...
+ *          }
+ *   int    CRC32 de todo lo anterior
+ *
+ *   protección = {
+ *     long,long id      int tipo*      long,long colocadoPor
+ *     long marcaTiempo  int radio      int mundo*   int x, y, z
+ *     int n miembros × { long,long uuid   int rol* }
+ *     int n flags    × { int clave*       boolean valor }
+ *   }
+ * </pre>
+ * Los campos con * son índices a la tabla de cadenas: nombres de mundo,
+ * tipos, roles y claves de flag se escriben una sola vez por archivo.
+ * Tipos y roles van por nombre y no por ordinal para que reordenar los
+ * enums no corrompa archivos viejos.
+ *
+ * Los bloques llevan su largo para que la lectura pueda decodificarlos en
+ * paralelo sin recorrer antes los anteriores. Se siguen leyendo archivos v1.
+ */
+public final class FormatoBinario implements FormatoAlmacen {
+
+    public static final String ARCHIVO = "protections.dat";
+
+    private static final int MAGIA = 0x50525443;
+    private static final short VERSION = 2;
+    private static final short VERSION_SIN_BLOQUES = 1;
+    private static final int BUFFER = 1 << 16;
+
+    /** Protecciones por bloque: unidad de trabajo de la lectura en paralelo. */
+    private static final int POR_BLOQUE = 2048;
+
+    @Override
+    public String nombreArchivo() {
+        return ARCHIVO;
+    }
+
+    // ---------------------------------------------------------------
+    // Escritura
+    // ---------------------------------------------------------------
+
+    @Override
+    public long escribir(SnapshotRegistro snap, File destino) throws IOException {
+        int cantidad = snap.cantidad();
+        TablaCadenas tabla = new TablaCadenas();
+        for (int i = 0; i < cantidad; i++) {
+            tabla.indice(snap.mundo(i));
+            tabla.indice(snap.tipo(i).getConfigKey());
+            for (int j = snap.inicioMiembros(i); j < snap.finMiembros(i); j++)
+                tabla.indice(snap.rol(j).name());
+            for (int k = snap.inicioFlags(i); k < snap.finFlags(i); k++)
+                tabla.indice(snap.claveFlag(k));
+        }
+
+        File temporal = ArchivosAtomicos.temporalPara(destino);
+        long bytes;
+        try (FileChannel canal = FileChannel.open(temporal.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(canal), BUFFER), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            out.writeInt(MAGIA);
+            out.writeShort(VERSION);
+
+            out.writeInt(tabla.cadenas.size());
+            for (String s : tabla.cadenas)
+                out.writeUTF(s);
+
+            out.writeInt(cantidad);
+            int bloques = (cantidad + POR_BLOQUE - 1) / POR_BLOQUE;
+            out.writeInt(bloques);
+
+            ByteArrayOutputStream bloque = new ByteArrayOutputStream(POR_BLOQUE * 256);
+            DataOutputStream outBloque = new DataOutputStream(bloque);
+            for (int inicio = 0; inicio < cantidad; inicio += POR_BLOQUE) {
+                int fin = Math.min(cantidad, inicio + POR_BLOQUE);
+                bloque.reset();
+                for (int i = inicio; i < fin; i++)
+                    escribirProteccion(outBloque, snap, i, tabla);
+                outBloque.flush();
+
+                out.writeInt(fin - inicio);
+                out.writeInt(bloque.size());
+                bloque.writeTo(out);
+            }
+
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            bytes = out.size();
+            canal.force(true);
+        }
+
+        ArchivosAtomicos.reemplazar(temporal, destino);
+        return bytes;
+    }
+
+    private static void escribirProteccion(DataOutputStream out, SnapshotRegistro snap, int i,
+            TablaCadenas tabla) throws IOException {
+        escribirUuid(out, snap.id(i));
+        out.writeInt(tabla.indice(snap.tipo(i).getConfigKey()));
+        escribirUuid(out, snap.colocadoPor(i));
+        out.writeLong(snap.marcaTiempo(i));
+        out.writeInt(snap.radio(i));
+        out.writeInt(tabla.indice(snap.mundo(i)));
+        out.writeInt(snap.x(i));
+        out.writeInt(snap.y(i));
+        out.writeInt(snap.z(i));
+
+        out.writeInt(snap.finMiembros(i) - snap.inicioMiembros(i));
+        for (int j = snap.inicioMiembros(i); j < snap.finMiembros(i); j++) {
+            escribirUuid(out, snap.miembro(j));
+            out.writeInt(tabla.indice(snap.rol(j).name()));
+        }
+
+        out.writeInt(snap.finFlags(i) - snap.inicioFlags(i));
+        for (int k = snap.inicioFlags(i); k < snap.finFlags(i); k++) {
+            out.writeInt(tabla.indice(snap.claveFlag(k)));
+            out.writeBoolean(snap.valorFlag(k));
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Lectura
+    // ---------------------------------------------------------------
+
+    @Override
+    public List<DatosProteccion> leer(File origen) throws IOException {
+        return leer(origen, null);
+    }
+
+    /**
+     * Lee el archivo completo a memoria, verifica el CRC y decodifica los
+     * bloques en el pool (o en este hilo si pool es null).
+     */
+    @Override
+    public List<DatosProteccion> leer(File origen, ExecutorService pool) throws IOException {
+        byte[] todo = leerCompleto(origen);
+        if (todo.length < 10)
+            throw new IOException("Archivo truncado: " + origen.getName());
+
+        CRC32 crc = new CRC32();
+        crc.update(todo, 0, todo.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(todo, todo.length - 4, 4).getInt())
+            throw new IOException("CRC inválido en " + origen.getName() + ", archivo corrupto");
+
+        ByteArrayInputStream bytes = new ByteArrayInputStream(todo, 0, todo.length - 4);
+        DataInputStream in = new DataInputStream(bytes);
+
+        if (in.readInt() != MAGIA)
+            throw new IOException("No es un archivo de Protectium: " + origen.getName());
+        short version = in.readShort();
+        if (version != VERSION && version != VERSION_SIN_BLOQUES)
+            throw new IOException("Versión de formato no soportada: " + version);
+
+        Cadenas cadenas = new Cadenas(in);
+        int cantidad = leerCantidad(in);
+
+        if (version == VERSION_SIN_BLOQUES) {
+            List<DatosProteccion> out = new ArrayList<>(cantidad);
+            for (int n = 0; n < cantidad; n++)
+                out.add(leerProteccion(in, cadenas));
+            return out;
+        }
+
+        // Ubicar los bloques (solo se leen sus cabeceras) y decodificarlos
+        int nBloques = leerCantidad(in);
+        List<Bloque> bloques = new ArrayList<>(nBloques);
+        for (int b = 0; b < nBloques; b++) {
+            int registros = leerCantidad(in);
+            int largo = leerCantidad(in);
+            int inicio = todo.length - 4 - bytes.available();
+            if (in.skipBytes(largo) != largo)
+                throw new IOException("Bloque truncado, archivo corrupto");
+            bloques.add(new Bloque(todo, inicio, largo, registros, cadenas));
+        }
+
+        List<DatosProteccion> out = new ArrayList<>(cantidad);
+        if (pool == null) {
+            for (Bloque bloque : bloques)
+                out.addAll(bloque.call());
+            return out;
+        }
+
+        try {
+            // Se juntan en orden: el resultado no depende del reparto entre hilos
+            for (Future<List<DatosProteccion>> parte : pool.invokeAll(bloques))
+                out.addAll(parte.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Lectura interrumpida");
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            throw causa instanceof IOException io ? io : new IOException(causa);
+        }
+        return out;
+    }
+
+    private static byte[] leerCompleto(File origen) throws IOException {
+        try (FileChannel canal = FileChannel.open(origen.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano > Integer.MAX_VALUE - 8)
+                throw new IOException("Archivo demasiado grande: " + origen.getName());
+            ByteBuffer buffer = ByteBuffer.allocate((int) tamano);
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer) < 0)
+                    break;
+            }
+            return buffer.array();
+        }
+    }
+
+    private static DatosProteccion leerProteccion(DataInputStream in, Cadenas cadenas) throws IOException {
+        UUID id = leerUuid(in);
+        ProtectionType tipo = cadenas.tipos[cadenas.indice(in)];
+        UUID colocadoPor = leerUuid(in);
+        long marcaTiempo = in.readLong();
+        int radio = in.readInt();
+        String mundo = cadenas.valores[cadenas.indice(in)];
+        int x = in.readInt();
+        int y = in.readInt();
+        int z = in.readInt();
+
+        int nMiembros = leerCantidad(in);
+        Map<UUID, ProtectionRecord.MemberRole> miembros = new HashMap<>(nMiembros * 2);
+        for (int i = 0; i < nMiembros; i++) {
+            UUID miembro = leerUuid(in);
+            ProtectionRecord.MemberRole rol = cadenas.roles[cadenas.indice(in)];
+            if (rol != null)
+                miembros.put(miembro, rol);
+        }
+
+        int nFlags = leerCantidad(in);
+        Map<String, Boolean> flags = new HashMap<>(nFlags * 2);
+        for (int i = 0; i < nFlags; i++) {
+            String clave = cadenas.valores[cadenas.indice(in)];
+            flags.put(clave, in.readBoolean());
+        }
+
+        return new DatosProteccion(id, tipo, colocadoPor, marcaTiempo, radio,
+                mundo, x, y, z, miembros, flags);
+    }
+
+    // ---------------------------------------------------------------
+    // Utilidades privadas
+    // ---------------------------------------------------------------
+
+    private static void escribirUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID leerUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static int leerCantidad(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0)
+            throw new IOException("Cantidad negativa, archivo corrupto");
+        return n;
+    }
+
+    private static ProtectionRecord.MemberRole rolDe(String nombre) {
+        for (ProtectionRecord.MemberRole rol : ProtectionRecord.MemberRole.values()) {
+            if (rol.name().equals(nombre))
+                return rol;
+        }
+        return null;
+    }
+
+    /** Cadenas distintas en orden de aparición, con su índice. */
+    private static final class TablaCadenas {
+        final List<String> cadenas = new ArrayList<>();
+        final Map<String, Integer> indices = new HashMap<>();
+
+        int indice(String s) {
+            Integer i = indices.get(s);
+            if (i == null) {
+                i = cadenas.size();
+                cadenas.add(s);
+                indices.put(s, i);
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Tabla de cadenas leída, con tipos y roles ya resueltos una vez por
+     * cadena y no una vez por registro. Inmutable: la comparten los hilos.
+     */
+    private static final class Cadenas {
+        final String[] valores;
+        final ProtectionType[] tipos;
+        final ProtectionRecord.MemberRole[] roles;
+
+        Cadenas(DataInputStream in) throws IOException {
+            valores = new String[leerCantidad(in)];
+            tipos = new ProtectionType[valores.length];
+            roles = new ProtectionRecord.MemberRole[valores.length];
+            for (int i = 0; i < valores.length; i++) {
+                valores[i] = in.readUTF();
+                tipos[i] = ProtectionType.fromString(valores[i]);
+                roles[i] = rolDe(valores[i]);
+            }
+        }
+
+        int indice(DataInputStream in) throws IOException {
+            int i = in.readInt();
+            if (i < 0 || i >= valores.length)
+                throw new IOException("Índice de cadena fuera de rango, archivo corrupto");
+            return i;
+        }
+    }
+
+    /** Un bloque por decodificar: tarea independiente para el pool. */
+    private static final class Bloque implements Callable<List<DatosProteccion>> {
+        private final byte[] todo;
+        private final int inicio, largo, registros;
+        private final Cadenas cadenas;
+
+        Bloque(byte[] todo, int inicio, int largo, int registros, Cadenas cadenas) {
+            this.todo = todo;
+            this.inicio = inicio;
+            this.largo = largo;
+            this.registros = registros;
+            this.cadenas = cadenas;
+        }
+
+        @Override
+        public List<DatosProteccion> call() throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(todo, inicio, largo));
+            List<DatosProteccion> out = new ArrayList<>(registros);
+            for (int n = 0; n < registros; n++)
+                out.add(leerProteccion(in, cadenas));
+            return out;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.protectium.storage;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Formato YAML original (protections.yml). Legible y editable a mano,
+ * pero arma un árbol de secciones completo en memoria en cada guardado.
+ */
+public final class FormatoYaml implements FormatoAlmacen {
+
+    public static final String ARCHIVO = "protections.yml";
+
+    /** Entradas por tarea al decodificar en paralelo. */
+    private static final int POR_TRAMO = 1024;
+
+    private final Logger logger;
+
+    public FormatoYaml(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public String nombreArchivo() {
+        return ARCHIVO;
+    }
+
+    @Override
+    public long escribir(SnapshotRegistro snap, File destino) throws IOException {
+        FileConfiguration data = new YamlConfiguration();
+
+        data.set("meta.saved-at", System.currentTimeMillis());
+        data.set("meta.count", snap.cantidad());
+
+        for (int i = 0; i < snap.cantidad(); i++) {
+            String path = "protections." + snap.id(i).toString();
+
+            // Datos básicos
+            data.set(path + ".tipo", snap.tipo(i).getConfigKey());
+            data.set(path + ".colocado-por", snap.colocadoPor(i).toString());
+            data.set(path + ".marca-tiempo", snap.marcaTiempo(i));
+            data.set(path + ".radio", snap.radio(i));
+
+            // Ubicación
+            data.set(path + ".ubicacion.mundo", snap.mundo(i));
+            data.set(path + ".ubicacion.x", snap.x(i));
+            data.set(path + ".ubicacion.y", snap.y(i));
+            data.set(path + ".ubicacion.z", snap.z(i));
+
+            // Miembros
+            for (int j = snap.inicioMiembros(i); j < snap.finMiembros(i); j++) {
+                data.set(path + ".miembros." + snap.miembro(j).toString(), snap.rol(j).name());
+            }
+
+            // Flags
+            for (int k = snap.inicioFlags(i); k < snap.finFlags(i); k++) {
+                data.set(path + ".flags." + snap.claveFlag(k), snap.valorFlag(k));
+            }
+        }
+
+        File temporal = ArchivosAtomicos.temporalPara(destino);
+        data.save(temporal);
+        long bytes = temporal.length();
+        ArchivosAtomicos.reemplazar(temporal, destino);
+        return bytes;
+    }
+
+    @Override
+    public List<DatosProteccion> leer(File origen) throws IOException {
+        return leer(origen, null);
+    }
+
+    /**
+     * El árbol YAML se parsea en un solo hilo (SnakeYAML no parte un
+     * documento), pero decodificar cada entrada es independiente: con pool,
+     * las claves se reparten en tramos que se decodifican en paralelo sobre
+     * el árbol ya armado (solo lecturas) y se juntan en orden.
+     */
+    @Override
+    public List<DatosProteccion> leer(File origen, ExecutorService pool) throws IOException {
+        FileConfiguration data = YamlConfiguration.loadConfiguration(origen);
+        ConfigurationSection section = data.getConfigurationSection("protections");
+        List<DatosProteccion> out = new ArrayList<>();
+
+        if (section == null) {
+            return out;
+        }
+
+        List<String> claves = new ArrayList<>(section.getKeys(false));
+        if (pool == null || claves.size() <= POR_TRAMO) {
+            decodificar(data, claves, out);
+            return out;
+        }
+
+        List<Callable<List<DatosProteccion>>> tramos = new ArrayList<>();
+        for (int i = 0; i < claves.size(); i += POR_TRAMO) {
+            List<String> tramo = claves.subList(i, Math.min(claves.size(), i + POR_TRAMO));
+            tramos.add(() -> {
+                List<DatosProteccion> parcial = new ArrayList<>(tramo.size());
+                decodificar(data, tramo, parcial);
+                return parcial;
+            });
+        }
+        try {
+            for (Future<List<DatosProteccion>> f : pool.invokeAll(tramos))
+                out.addAll(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lectura interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error decodificando " + origen.getName(), e.getCause());
+        }
+        return out;
+    }
+
+    private void decodificar(FileConfiguration data, List<String> claves, List<DatosProteccion> out) {
+        for (String key : claves) {
+            try {
+                String path = "protections." + key;
+
+                // Parsear datos básicos
+                UUID id = UUID.fromString(key);
+                ProtectionType tipo = ProtectionType.fromString(data.getString(path + ".tipo"));
+                UUID colocadoPor = UUID.fromString(data.getString(path + ".colocado-por"));
+                long marcaTiempo = data.getLong(path + ".marca-tiempo");
+                int radio = data.getInt(path + ".radio");
+
+                // Parsear ubicación
+                String worldName = data.getString(path + ".ubicacion.mundo");
+                int x = data.getInt(path + ".ubicacion.x");
+                int y = data.getInt(path + ".ubicacion.y");
+                int z = data.getInt(path + ".ubicacion.z");
+
+                // Parsear miembros
+                Map<UUID, ProtectionRecord.MemberRole> miembros = new HashMap<>();
+                ConfigurationSection miembrosSection = data.getConfigurationSection(path + ".miembros");
+                if (miembrosSection != null) {
+                    for (String memberId : miembrosSection.getKeys(false)) {
+                        try {
+                            UUID memberUUID = UUID.fromString(memberId);
+                            ProtectionRecord.MemberRole role = ProtectionRecord.MemberRole.valueOf(
+                                    miembrosSection.getString(memberId));
+                            miembros.put(memberUUID, role);
+                        } catch (Exception ignored) {
+                        }
+                    }
+                }
+
+                // Parsear flags
+                Map<String, Boolean> flags = new HashMap<>();
+                ConfigurationSection flagsSection = data.getConfigurationSection(path + ".flags");
+                if (flagsSection != null) {
+                    for (String flagKey : flagsSection.getKeys(false)) {
+                        flags.put(flagKey, flagsSection.getBoolean(flagKey));
+                    }
+                }
+
+                out.add(new DatosProteccion(id, tipo, colocadoPor, marcaTiempo, radio,
+                        worldName, x, y, z, miembros, flags));
+
+            } catch (Exception e) {
+                logger.warning("§e Error leyendo protección " + key + ": " + e.getMessage());
+            }
+        }
+    }
+}
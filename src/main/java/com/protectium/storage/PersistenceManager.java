@@ -2,174 +2,356 @@ package com.protectium.storage;
 
 import com.protectium.core.ProtectiumPlugin;
 import com.protectium.protection.ProtectionRecord;
-import com.protectium.protection.ProtectionType;
 import com.protectium.registry.ProtectionRegistry;
 import org.bukkit.Bukkit;
-import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
- * Sistema de persistencia YAML para protecciones.
+ * Sistema de persistencia para protecciones.
  * Guarda las protecciones activas al apagar el servidor y las restaura al
  * encender.
  * El bloque físico debe seguir existiendo para que la protección se restaure.
+ *
+ * El formato en disco es intercambiable (ver FormatoAlmacen): binario por
+ * defecto, YAML si se configura. Si el archivo del formato activo no
+ * existe pero sí el del otro, se migra una única vez y el viejo se renombra
+ * a *.migrado.
+ *
+ * Entre guardados completos, cada mutación del registro se anota en un
+ * journal (ver DiarioCambios). saveAll() compacta: escribe el snapshot y
+ * descarta el journal que ya quedó incluido.
+ *
+ * La carga decodifica en paralelo en un pool temporal y no fuerza la carga
+ * de chunks: las protecciones en chunks descargados se verifican cuando el
+ * servidor los carga (ver ConsistencyTask).
+ *
+ * Las protecciones de mundos no cargados quedan en reposo fuera del
+ * registro (ver ProteccionesInactivas), se siguen guardando y se activan
+ * cuando su mundo se carga.
  */
 public final class PersistenceManager {
 
-    private final ProtectiumPlugin plugin;
+    private final File dataFolder;
     private final ProtectionRegistry registry;
     private final Logger logger;
+    private final FormatoAlmacen formato;
     private final File dataFile;
+    private final Function<String, World> resolverMundo;
+    private final DiarioCambios diario;
+    private final ProteccionesInactivas inactivas = new ProteccionesInactivas();
 
     public PersistenceManager(ProtectiumPlugin plugin, ProtectionRegistry registry) {
-        this.plugin = plugin;
-        this.registry = registry;
-        this.logger = plugin.getLogger();
-        this.dataFile = new File(plugin.getDataFolder(), "protections.yml");
+        this(plugin.getDataFolder(), plugin.getLogger(), registry, Bukkit::getWorld,
+                formatoPorNombre(plugin.getConfig().getString("almacenamiento.formato", "binario"),
+                        plugin.getLogger()));
     }
 
     /**
-     * Guarda todas las protecciones activas a YAML.
+     * Constructor sin dependencia del plugin: permite usar la persistencia
+     * fuera del servidor (benchmarks, herramientas de migración).
+     *
+     * @param resolverMundo nombre de mundo → mundo cargado, o null
      */
-    public void saveAll() {
-        FileConfiguration data = new YamlConfiguration();
-        List<ProtectionRecord> protecciones = registry.todas();
+    public PersistenceManager(File dataFolder, Logger logger, ProtectionRegistry registry,
+            Function<String, World> resolverMundo, FormatoAlmacen formato) {
+        this.dataFolder = dataFolder;
+        this.registry = registry;
+        this.logger = logger;
+        this.formato = formato;
+        this.dataFile = new File(dataFolder, formato.nombreArchivo());
+        this.resolverMundo = resolverMundo;
+        this.diario = new DiarioCambios(dataFolder, logger);
+    }
 
-        data.set("meta.saved-at", System.currentTimeMillis());
-        data.set("meta.count", protecciones.size());
+    /** "yaml" o "binario"; cualquier otro valor cae al binario. */
+    public static FormatoAlmacen formatoPorNombre(String nombre, Logger logger) {
+        if ("yaml".equalsIgnoreCase(nombre))
+            return new FormatoYaml(logger);
+        if (!"binario".equalsIgnoreCase(nombre))
+            logger.warning("§e Formato de almacenamiento '" + nombre + "' desconocido, usando binario.");
+        return new FormatoBinario();
+    }
 
-        for (ProtectionRecord rec : protecciones) {
-            String path = "protections." + rec.getId().toString();
+    /**
+     * Guardado completo en el hilo que llama: rotar, capturar y escribir.
+     * Solo para cuando no hay hilo de guardado (apagado, herramientas);
+     * en el servidor guarda ProgramadorGuardado.
+     *
+     * @return bytes escritos, o -1 si el guardado falló
+     */
+    public synchronized long saveAll() {
+        rotarJournal();
+        return escribir(capturar());
+    }
+
+    /**
+     * Primer paso de un guardado. Se rota ANTES de capturar: todo lo
+     * anotado en el journal rotado ya está aplicado en el registro y entra
+     * en el snapshot.
+     */
+    public void rotarJournal() {
+        try {
+            diario.rotar();
+        } catch (IOException e) {
+            logger.severe("§c Error rotando journal: " + e.getMessage());
+        }
+    }
 
-            // Datos básicos
-            data.set(path + ".tipo", rec.getTipo().getConfigKey());
-            data.set(path + ".colocado-por", rec.getColocadoPor().toString());
-            data.set(path + ".marca-tiempo", rec.getMarcaTiempo());
-            data.set(path + ".radio", rec.getRadio());
+    /** Segundo paso, de una vez. Debe correr en el hilo principal. */
+    public SnapshotRegistro capturar() {
+        return SnapshotRegistro.capturar(registry, inactivas.todas());
+    }
 
-            // Ubicación
-            Location loc = rec.getUbicacionBloque();
-            data.set(path + ".ubicacion.mundo", loc.getWorld().getName());
-            data.set(path + ".ubicacion.x", loc.getBlockX());
-            data.set(path + ".ubicacion.y", loc.getBlockY());
-            data.set(path + ".ubicacion.z", loc.getBlockZ());
+    /**
+     * Segundo paso, repartido en ticks: la captura se entrega al
+     * PlanificadorFraccionado y avanza en el hilo principal.
+     */
+    public SnapshotRegistro.Captura nuevaCaptura() {
+        return new SnapshotRegistro.Captura(registry, inactivas::todas);
+    }
 
-            // Miembros
-            Map<UUID, ProtectionRecord.MemberRole> miembros = rec.getMembers();
-            for (Map.Entry<UUID, ProtectionRecord.MemberRole> entry : miembros.entrySet()) {
-                data.set(path + ".miembros." + entry.getKey().toString(), entry.getValue().name());
-            }
+    /**
+     * Tercer paso: escribe el snapshot y descarta el journal que cubre.
+     * Puede correr en cualquier hilo; no toca el registro.
+     *
+     * @return bytes escritos, o -1 si el guardado falló
+     */
+    public synchronized long escribir(SnapshotRegistro snapshot) {
+        try {
+            long bytes = formato.escribir(snapshot, dataFile);
+            diario.descartarAnterior();
+            logger.info("§a Guardadas " + snapshot.cantidad() + " protecciones (" + bytes / 1024 + " KB).");
+            return bytes;
+        } catch (IOException e) {
+            logger.severe("§c Error guardando protecciones: " + e.getMessage());
+            return -1;
+        }
+    }
 
-            // Flags
-            Map<String, Boolean> flags = rec.getFlags();
-            for (Map.Entry<String, Boolean> entry : flags.entrySet()) {
-                data.set(path + ".flags." + entry.getKey(), entry.getValue());
+    /**
+     * Carga protecciones desde disco (snapshot + journal), migrando desde
+     * el otro formato si hace falta. El bloque físico se verifica ahora si
+     * su chunk está cargado, o al cargarse. Al terminar, el journal queda
+     * escuchando al registro.
+     */
+    public int loadAll() {
+        long inicio = System.nanoTime();
+        ExecutorService pool = crearPoolCarga();
+        List<DatosProteccion> datos;
+        try {
+            if (!dataFile.exists()) {
+                datos = migrar(pool);
+            } else {
+                try {
+                    datos = formato.leer(dataFile, pool);
+                } catch (IOException e) {
+                    logger.severe("§c Error leyendo " + dataFile.getName() + ": " + e.getMessage());
+                    apartarCorrupto();
+                    datos = new ArrayList<>();
+                }
             }
+        } finally {
+            pool.shutdown();
         }
 
         try {
-            data.save(dataFile);
-            logger.info("§a Guardadas " + protecciones.size() + " protecciones.");
+            datos = diario.recuperar(datos);
         } catch (IOException e) {
-            logger.severe("§c Error guardando protecciones: " + e.getMessage());
+            logger.severe("§c Error leyendo journal, los cambios no se anotarán hasta el próximo guardado: "
+                    + e.getMessage());
         }
+
+        int loaded = restaurar(datos);
+        registry.agregarObservador(diario);
+
+        long ms = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        logger.info("§a Carga completada en " + ms + " ms (" + loaded * 1000L / ms + " protecciones/s).");
+        return loaded;
     }
 
     /**
-     * Carga protecciones desde YAML.
-     * Verifica que el bloque físico siga existiendo.
+     * Pasa al registro las protecciones en reposo del mundo recién cargado.
+     *
+     * @return protecciones activadas
      */
-    public int loadAll() {
-        if (!dataFile.exists()) {
-            logger.info("§7 No hay archivo de protecciones previo.");
-            return 0;
+    public int activarMundo(World world) {
+        List<DatosProteccion> datos = inactivas.tomar(world.getName());
+        int activadas = 0;
+        for (DatosProteccion d : datos) {
+            try {
+                if (restaurarEn(world, d, true))
+                    activadas++;
+            } catch (Exception e) {
+                logger.warning("§e Error activando protección " + d.getId() + ": " + e.getMessage());
+            }
         }
+        if (!datos.isEmpty())
+            logger.info("§a Mundo '" + world.getName() + "' cargado: " + activadas + " protecciones activadas.");
+        return activadas;
+    }
+
+    /**
+     * Saca del registro las protecciones del mundo que se descarga y las
+     * deja en reposo: sus índices dejan de ocupar memoria, pero se siguen
+     * guardando.
+     *
+     * @return protecciones desactivadas
+     */
+    public int desactivarMundo(World world) {
+        List<ProtectionRecord> quitadas = registry.desactivarMundo(world);
+        for (ProtectionRecord rec : quitadas)
+            inactivas.agregar(DatosProteccion.desde(rec));
+        if (!quitadas.isEmpty())
+            logger.info("§7 Mundo '" + world.getName() + "' descargado: " + quitadas.size()
+                    + " protecciones en reposo.");
+        return quitadas.size();
+    }
 
-        FileConfiguration data = YamlConfiguration.loadConfiguration(dataFile);
-        ConfigurationSection section = data.getConfigurationSection("protections");
+    /**
+     * Quita al jugador de las protecciones en reposo donde es miembro (no
+     * de las suyas). El registro no las ve: el cambio se anota directo en
+     * el journal. Solo desde el hilo principal.
+     *
+     * @return cuántas protecciones cambiaron
+     */
+    public int quitarMiembroInactivas(UUID jugador) {
+        return anotar(inactivas.quitarMiembro(jugador));
+    }
 
-        if (section == null) {
-            return 0;
+    /**
+     * Pasa a otro dueño las protecciones en reposo del anterior. Igual que
+     * quitarMiembroInactivas(), se anota directo en el journal.
+     *
+     * @return cuántas protecciones cambiaron de dueño
+     */
+    public int transferirInactivas(UUID anterior, UUID nuevoDueno) {
+        return anotar(inactivas.transferir(anterior, nuevoDueno));
+    }
+
+    private int anotar(List<DatosProteccion> cambiadas) {
+        for (DatosProteccion d : cambiadas)
+            diario.anotar(d);
+        return cambiadas.size();
+    }
+
+    /** Protecciones guardadas de mundos que no están cargados. */
+    public int getInactivas() {
+        return inactivas.cantidad();
+    }
+
+    /** Protecciones del dueño en mundos que no están cargados. Solo desde el hilo principal. */
+    public int getInactivasPorDueno(UUID dueno) {
+        return inactivas.cantidadPorDueno(dueno);
+    }
+
+    /** Mutaciones anotadas en el journal desde el último guardado completo. */
+    public int getEntradasJournal() {
+        return diario.getEntradas();
+    }
+
+    /** Avisa cuando el journal acumula tantas entradas sin compactar. */
+    public void alLlenarseJournal(int umbral, Runnable accion) {
+        diario.alLlenarse(umbral, accion);
+    }
+
+    /** Cierra el journal. Llamar después del último saveAll(). */
+    public void cerrar() {
+        registry.quitarObservador(diario);
+        diario.cerrar();
+    }
+
+    /**
+     * Migración única: lee el archivo del formato inactivo, lo guarda en el
+     * activo y renombra el original para no volver a migrarlo.
+     */
+    private List<DatosProteccion> migrar(ExecutorService pool) {
+        FormatoAlmacen anterior = formato instanceof FormatoBinario
+                ? new FormatoYaml(logger)
+                : new FormatoBinario();
+        File archivoAnterior = new File(dataFolder, anterior.nombreArchivo());
+        if (!archivoAnterior.exists()) {
+            logger.info("§7 No hay archivo de protecciones previo.");
+            return new ArrayList<>();
+        }
+
+        logger.info("§e Migrando " + archivoAnterior.getName() + " → " + dataFile.getName() + "...");
+        try {
+            List<DatosProteccion> datos = anterior.leer(archivoAnterior, pool);
+            // Se escriben los datos leídos tal cual, no el registro: la
+            // migración en sí no descarta ninguna protección.
+            formato.escribir(SnapshotRegistro.desde(datos), dataFile);
+            File migrado = new File(dataFolder, archivoAnterior.getName() + ".migrado");
+            if (!archivoAnterior.renameTo(migrado))
+                logger.warning("§e No se pudo renombrar " + archivoAnterior.getName()
+                        + ", se ignorará mientras exista " + dataFile.getName());
+            logger.info("§a Migración completa: " + datos.size() + " protecciones.");
+            return datos;
+        } catch (IOException e) {
+            logger.severe("§c Error migrando " + archivoAnterior.getName() + ": " + e.getMessage());
+            return new ArrayList<>();
         }
+    }
+
+    /**
+     * Un snapshot ilegible no se debe pisar con el próximo guardado:
+     * se renombra para poder recuperarlo a mano.
+     */
+    private void apartarCorrupto() {
+        File apartado = new File(dataFolder, dataFile.getName() + ".corrupto-" + System.currentTimeMillis());
+        if (dataFile.renameTo(apartado))
+            logger.severe("§c Archivo ilegible movido a " + apartado.getName());
+    }
 
+    /**
+     * Pool de decodificación para la carga. Hilos daemon: si algo falla a
+     * mitad de la carga no retienen el apagado del servidor.
+     */
+    private static ExecutorService crearPoolCarga() {
+        int hilos = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "Protectium-Carga-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Registra las protecciones cuyo mundo está cargado; las demás quedan
+     * en reposo hasta que se cargue su mundo.
+     */
+    private int restaurar(List<DatosProteccion> datos) {
         int loaded = 0;
         int skipped = 0;
 
-        for (String key : section.getKeys(false)) {
+        for (DatosProteccion d : datos) {
+            String key = d.getId().toString();
             try {
-                String path = "protections." + key;
-
-                // Parsear datos básicos
-                UUID id = UUID.fromString(key);
-                ProtectionType tipo = ProtectionType.fromString(data.getString(path + ".tipo"));
-                UUID colocadoPor = UUID.fromString(data.getString(path + ".colocado-por"));
-                long marcaTiempo = data.getLong(path + ".marca-tiempo");
-                int radio = data.getInt(path + ".radio");
-
-                if (tipo == null) {
+                if (d.getTipo() == null) {
                     logger.warning("§e Tipo inválido para protección " + key);
                     skipped++;
                     continue;
                 }
 
-                // Parsear ubicación
-                String worldName = data.getString(path + ".ubicacion.mundo");
-                World world = Bukkit.getWorld(worldName);
+                World world = resolverMundo.apply(d.getMundo());
                 if (world == null) {
-                    logger.warning("§e Mundo '" + worldName + "' no cargado, saltando protección " + key);
-                    skipped++;
+                    inactivas.agregar(d);
                     continue;
                 }
 
-                int x = data.getInt(path + ".ubicacion.x");
-                int y = data.getInt(path + ".ubicacion.y");
-                int z = data.getInt(path + ".ubicacion.z");
-                Location ubicacion = new Location(world, x, y, z);
-
-                // Verificar que el bloque físico existe (no es aire)
-                if (ubicacion.getBlock().getType().isAir()) {
-                    logger.info("§7 Bloque removido para protección " + key + ", no se restaura.");
+                if (restaurarEn(world, d, false))
+                    loaded++;
+                else
                     skipped++;
-                    continue;
-                }
-
-                // Parsear miembros
-                Map<UUID, ProtectionRecord.MemberRole> miembros = new HashMap<>();
-                ConfigurationSection miembrosSection = data.getConfigurationSection(path + ".miembros");
-                if (miembrosSection != null) {
-                    for (String memberId : miembrosSection.getKeys(false)) {
-                        try {
-                            UUID memberUUID = UUID.fromString(memberId);
-                            ProtectionRecord.MemberRole role = ProtectionRecord.MemberRole.valueOf(
-                                    miembrosSection.getString(memberId));
-                            miembros.put(memberUUID, role);
-                        } catch (Exception ignored) {
-                        }
-                    }
-                }
-
-                // Parsear flags
-                Map<String, Boolean> flags = new HashMap<>();
-                ConfigurationSection flagsSection = data.getConfigurationSection(path + ".flags");
-                if (flagsSection != null) {
-                    for (String flagKey : flagsSection.getKeys(false)) {
-                        flags.put(flagKey, flagsSection.getBoolean(flagKey));
-                    }
-                }
-
-                // Crear y registrar protección
-                ProtectionRecord record = new ProtectionRecord(
-                        id, tipo, ubicacion, radio, colocadoPor, marcaTiempo, miembros, flags);
-                registry.registrar(record);
-                loaded++;
 
             } catch (Exception e) {
                 logger.warning("§e Error cargando protección " + key + ": " + e.getMessage());
@@ -178,40 +360,46 @@ public final class PersistenceManager {
         }
 
         logger.info("§a Cargadas " + loaded + " protecciones. §7(" + skipped + " omitidas)");
+        if (inactivas.cantidad() > 0)
+            logger.info("§7 " + inactivas.cantidad() + " protecciones en " + inactivas.mundos()
+                    + " mundos sin cargar, se activarán al cargarse.");
         return loaded;
     }
 
+    /**
+     * Registra una protección en su mundo. Si el chunk ya está cargado se
+     * verifica el bloque en el acto; si no, lo verifica ConsistencyTask
+     * cuando el servidor lo cargue.
+     *
+     * @param activacion viene de un mundo recién cargado: se registra como
+     *                   activación y el journal no la anota
+     * @return false si el bloque ya no existe
+     */
+    private boolean restaurarEn(World world, DatosProteccion d, boolean activacion) {
+        boolean chunkCargado = world.isChunkLoaded(d.getX() >> 4, d.getZ() >> 4);
+
+        // Verificar que el bloque físico existe (no es aire), sin cargar el chunk
+        if (chunkCargado && world.getBlockAt(d.getX(), d.getY(), d.getZ()).getType().isAir()) {
+            logger.info("§7 Bloque removido para protección " + d.getId() + ", no se restaura.");
+            return false;
+        }
+
+        ProtectionRecord rec = d.crearRegistro(world);
+        if (activacion)
+            registry.activar(rec);
+        else
+            registry.registrar(rec);
+        return true;
+    }
+
     /**
      * Crea un backup de emergencia cuando falla el guardado normal.
-     * Usa timestamp en el nombre del archivo.
+     * Siempre en YAML (legible a mano) y con timestamp en el nombre.
      */
     public void createEmergencyBackup() throws IOException {
         String timestamp = String.valueOf(System.currentTimeMillis());
-        File backupFile = new File(plugin.getDataFolder(), "protections_emergency_" + timestamp + ".yml");
-        
-        FileConfiguration data = new YamlConfiguration();
-        List<ProtectionRecord> protecciones = registry.todas();
-        
-        data.set("meta.emergency-backup", true);
-        data.set("meta.timestamp", timestamp);
-        data.set("meta.count", protecciones.size());
-        
-        for (ProtectionRecord rec : protecciones) {
-            String path = "protections." + rec.getId().toString();
-            
-            data.set(path + ".tipo", rec.getTipo().getConfigKey());
-            data.set(path + ".colocado-por", rec.getColocadoPor().toString());
-            data.set(path + ".marca-tiempo", rec.getMarcaTiempo());
-            data.set(path + ".radio", rec.getRadio());
-            
-            Location loc = rec.getUbicacionBloque();
-            data.set(path + ".ubicacion.mundo", loc.getWorld().getName());
-            data.set(path + ".ubicacion.x", loc.getBlockX());
-            data.set(path + ".ubicacion.y", loc.getBlockY());
-            data.set(path + ".ubicacion.z", loc.getBlockZ());
-        }
-        
-        data.save(backupFile);
+        File backupFile = new File(dataFolder, "protections_emergency_" + timestamp + ".yml");
+        new FormatoYaml(logger).escribir(capturar(), backupFile);
         logger.warning("Backup de emergencia creado: " + backupFile.getName());
     }
 }
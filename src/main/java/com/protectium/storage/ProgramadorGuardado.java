@@ -0,0 +1,249 @@
+package com.protectium.storage;
+
+import com.protectium.registry.ProtectionRegistry;
+import com.protectium.task.TareaFraccionada;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Único escritor de los guardados completos. El autoguardado periódico y
+ * las solicitudes (/prot guardar, journal lleno) corren en un solo hilo,
+ * así que nunca hay dos saveAll() compitiendo por el archivo.
+ *
+ * - Varias solicitudes seguidas se agrupan en una sola escritura.
+ * - Si la versión del registro no cambió desde el último guardado, no se
+ *   escribe nada.
+ * - Guarda duración y bytes del último guardado para /prot estado.
+ *
+ * Cada guardado tiene tres pasos: rotar el journal (hilo de guardado),
+ * capturar un SnapshotRegistro (hilo principal, donde se muta el registro,
+ * repartido en varios ticks por el PlanificadorFraccionado) y serializarlo
+ * (de vuelta en el hilo de guardado).
+ */
+public final class ProgramadorGuardado {
+
+    /** Espera antes de escribir, para agrupar ráfagas de solicitudes. */
+    private static final long RETRASO_MS = 2000;
+
+    /** Máximo a esperar que el hilo principal haga la captura. */
+    private static final long ESPERA_CAPTURA_S = 30;
+
+    private final PersistenceManager persistencia;
+    private final ProtectionRegistry registry;
+    private final Logger logger;
+    private final ScheduledThreadPoolExecutor hilo;
+    private final Consumer<TareaFraccionada> planificador;
+
+    private final AtomicBoolean pendiente = new AtomicBoolean();
+    private final AtomicLong guardados = new AtomicLong();
+    private final AtomicLong omitidos = new AtomicLong();
+    private final AtomicLong solicitudes = new AtomicLong();
+
+    // Solo las escribe el hilo de guardado (o detener(), con el hilo ya parado)
+    private volatile long versionGuardada;
+    private volatile long ultimaDuracionNanos = -1;
+    private volatile long ultimosBytes = -1;
+    private volatile long ultimoGuardadoEn;
+    private volatile long ultimaCapturaNanos = -1;
+    private volatile int ultimaCapturaTicks;
+
+    // Captura esperando al hilo principal; detener() la cancela para no
+    // quedar esperándose mutuamente.
+    private volatile SnapshotRegistro.Captura captura;
+    private volatile boolean detenido;
+
+    /**
+     * @param planificador entrega tareas fraccionadas al hilo que muta el
+     *                     registro (en el servidor, el PlanificadorFraccionado)
+     */
+    public ProgramadorGuardado(PersistenceManager persistencia, ProtectionRegistry registry, Logger logger,
+            Consumer<TareaFraccionada> planificador) {
+        this.persistencia = persistencia;
+        this.registry = registry;
+        this.logger = logger;
+        this.planificador = planificador;
+        this.hilo = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "Protectium-Guardado");
+            t.setDaemon(true);
+            return t;
+        });
+        // Al detener, las solicitudes en espera se descartan: el guardado
+        // final de detener() ya las cubre.
+        this.hilo.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        // Recién cargado, lo que hay en memoria ya está en disco (snapshot + journal)
+        this.versionGuardada = registry.getVersion();
+    }
+
+    /** Arranca el autoguardado periódico. */
+    public void iniciar(long periodoSegundos) {
+        hilo.scheduleWithFixedDelay(this::guardarEnHilo, periodoSegundos, periodoSegundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Pide un guardado. Si ya hay uno pendiente, esta solicitud se suma a
+     * ese. Retorna enseguida; la escritura ocurre en el hilo de guardado.
+     */
+    public void solicitar() {
+        if (detenido)
+            return; // el guardado final de detener() ya lo cubre
+        solicitudes.incrementAndGet();
+        if (pendiente.compareAndSet(false, true)) {
+            hilo.schedule(() -> {
+                pendiente.set(false);
+                guardarEnHilo();
+            }, RETRASO_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Para el hilo (esperando el guardado en curso) y hace el guardado
+     * final en el hilo que llama, que debe ser el principal. Para el
+     * apagado del servidor.
+     * No se interrumpe el hilo: interrumpir una escritura por FileChannel
+     * cierra el canal y deja el guardado a medias.
+     *
+     * @throws IOException si el guardado final falló (el journal se
+     *                     conserva y se recupera al arrancar)
+     */
+    public void detener() throws IOException {
+        detenido = true;
+        SnapshotRegistro.Captura pendienteCaptura = captura;
+        if (pendienteCaptura != null)
+            pendienteCaptura.cancelar();
+
+        hilo.shutdown();
+        boolean terminado = false;
+        try {
+            terminado = hilo.awaitTermination(30, TimeUnit.SECONDS);
+            if (!terminado)
+                logger.warning("§e El hilo de guardado no terminó a tiempo.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!hayCambios()) {
+            omitidos.incrementAndGet();
+            return;
+        }
+        // Si el hilo sigue escribiendo, rotar ahora sumaría a *.anterior
+        // entradas que ese guardado borra al terminar. Sin rotar quedan en
+        // el journal actual hasta que un guardado que las incluya termine.
+        if (terminado)
+            persistencia.rotarJournal();
+        long inicio = System.nanoTime();
+        SnapshotRegistro snapshot = persistencia.capturar();
+        ultimaCapturaNanos = System.nanoTime() - inicio;
+        ultimaCapturaTicks = 1;
+        if (!escribir(snapshot))
+            throw new IOException("el guardado final falló");
+    }
+
+    /** Guardado desde el hilo de guardado. */
+    private void guardarEnHilo() {
+        if (!hayCambios()) {
+            omitidos.incrementAndGet();
+            return;
+        }
+
+        persistencia.rotarJournal();
+
+        SnapshotRegistro snapshot;
+        SnapshotRegistro.Captura pedida = persistencia.nuevaCaptura();
+        try {
+            captura = pedida;
+            if (detenido)
+                pedida.cancelar();
+            planificador.accept(pedida);
+            snapshot = pedida.getResultado().get(ESPERA_CAPTURA_S, TimeUnit.SECONDS);
+            ultimaCapturaNanos = pedida.getNanos();
+            ultimaCapturaTicks = pedida.getAvances();
+        } catch (CancellationException e) {
+            return; // detener() hace el guardado final
+        } catch (TimeoutException e) {
+            logger.warning("§e El hilo principal no respondió a tiempo, guardado pospuesto.");
+            pedida.cancelar();
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | RuntimeException e) {
+            logger.severe("§c Error capturando protecciones: " + e.getMessage());
+            return;
+        } finally {
+            captura = null;
+        }
+
+        escribir(snapshot);
+    }
+
+    /** @return false si la escritura falló */
+    private boolean escribir(SnapshotRegistro snapshot) {
+        long inicio = System.nanoTime();
+        long bytes = persistencia.escribir(snapshot);
+        if (bytes < 0)
+            return false;
+
+        ultimaDuracionNanos = System.nanoTime() - inicio;
+        ultimosBytes = bytes;
+        ultimoGuardadoEn = System.currentTimeMillis();
+        // La versión capturada junto al snapshot: lo que cambió después
+        // sube la versión y entra en el próximo guardado.
+        versionGuardada = snapshot.getVersion();
+        guardados.incrementAndGet();
+        return true;
+    }
+
+    // ---------------------------------------------------------------
+    // Estadísticas
+    // ---------------------------------------------------------------
+
+    /** ¿Hay mutaciones en memoria que todavía no están en el snapshot? */
+    public boolean hayCambios() {
+        return registry.getVersion() != versionGuardada;
+    }
+
+    /**
+     * Tiempo que la última captura ocupó el hilo principal, en ms, o -1.
+     * Suma de todos los ticks en que se repartió.
+     */
+    public double getUltimaCapturaMs() {
+        return ultimaCapturaNanos < 0 ? -1 : ultimaCapturaNanos / 1_000_000.0;
+    }
+
+    /** Ticks en que se repartió la última captura. */
+    public int getUltimaCapturaTicks() {
+        return ultimaCapturaTicks;
+    }
+
+    /** Duración de la última escritura exitosa en milisegundos, o -1. */
+    public double getUltimaDuracionMs() {
+        return ultimaDuracionNanos < 0 ? -1 : ultimaDuracionNanos / 1_000_000.0;
+    }
+
+    /** Bytes escritos en el último guardado exitoso, o -1. */
+    public long getUltimosBytes() {
+        return ultimosBytes;
+    }
+
+    /** Marca de tiempo del último guardado exitoso, o 0. */
+    public long getUltimoGuardadoEn() {
+        return ultimoGuardadoEn;
+    }
+
+    public long getGuardados() {
+        return guardados.get();
+    }
+
+    public long getOmitidos() {
+        return omitidos.get();
+    }
+
+    public long getSolicitudes() {
+        return solicitudes.get();
+    }
+}
@@ -0,0 +1,119 @@
+package com.protectium.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+/**
+ * Protecciones de mundos que no están cargados, en forma plana
+ * (DatosProteccion): sin Location, sin índices espaciales y sin
+ * referencia al mundo.
+ *
+ * No están en el registro, así que ninguna consulta las ve, pero entran
+ * en cada snapshot para que guardar no las pierda. Vuelven al registro
+ * cuando se carga su mundo.
+ *
+ * Solo se usa desde el hilo principal.
+ */
+public final class ProteccionesInactivas {
+
+    /** nombre de mundo → protecciones en reposo */
+    private final Map<String, List<DatosProteccion>> porMundo = new HashMap<>();
+    /** dueño → cuántas protecciones en reposo tiene, para los límites */
+    private final Map<UUID, Integer> porDueno = new HashMap<>();
+    private int cantidad;
+
+    public void agregar(DatosProteccion datos) {
+        porMundo.computeIfAbsent(datos.getMundo(), k -> new ArrayList<>()).add(datos);
+        contarDueno(datos.getColocadoPor(), 1);
+        cantidad++;
+    }
+
+    /** Quita y retorna las protecciones del mundo (vacío si no hay). */
+    public List<DatosProteccion> tomar(String mundo) {
+        List<DatosProteccion> lista = porMundo.remove(mundo);
+        if (lista == null)
+            return Collections.emptyList();
+        for (DatosProteccion d : lista)
+            contarDueno(d.getColocadoPor(), -1);
+        cantidad -= lista.size();
+        return lista;
+    }
+
+    /** Protecciones en reposo del dueño. */
+    public int cantidadPorDueno(UUID dueno) {
+        return porDueno.getOrDefault(dueno, 0);
+    }
+
+    /**
+     * Quita al jugador de las protecciones en reposo donde es miembro,
+     * salvo las suyas.
+     *
+     * @return las copias que cambiaron
+     */
+    public List<DatosProteccion> quitarMiembro(UUID jugador) {
+        return reemplazar(d -> !d.getColocadoPor().equals(jugador) && d.getMiembros().containsKey(jugador)
+                ? d.conMiembro(jugador, null)
+                : null);
+    }
+
+    /**
+     * Pasa a otro dueño las protecciones en reposo del anterior.
+     *
+     * @return las copias que cambiaron
+     */
+    public List<DatosProteccion> transferir(UUID anterior, UUID nuevoDueno) {
+        if (anterior.equals(nuevoDueno))
+            return Collections.emptyList();
+        List<DatosProteccion> cambiadas =
+                reemplazar(d -> d.getColocadoPor().equals(anterior) ? d.conDueno(nuevoDueno) : null);
+        contarDueno(anterior, -cambiadas.size());
+        contarDueno(nuevoDueno, cambiadas.size());
+        return cambiadas;
+    }
+
+    /** Cambia en su lugar cada protección para la que el cambio no da null. */
+    private List<DatosProteccion> reemplazar(UnaryOperator<DatosProteccion> cambio) {
+        List<DatosProteccion> cambiadas = new ArrayList<>();
+        for (List<DatosProteccion> lista : porMundo.values()) {
+            for (ListIterator<DatosProteccion> it = lista.listIterator(); it.hasNext();) {
+                DatosProteccion nueva = cambio.apply(it.next());
+                if (nueva != null) {
+                    it.set(nueva);
+                    cambiadas.add(nueva);
+                }
+            }
+        }
+        return cambiadas;
+    }
+
+    private void contarDueno(UUID dueno, int delta) {
+        if (delta != 0)
+            porDueno.merge(dueno, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    /** Todas las protecciones en reposo, para incluirlas en un snapshot. */
+    public Collection<DatosProteccion> todas() {
+        if (porMundo.isEmpty())
+            return Collections.emptyList();
+        List<DatosProteccion> out = new ArrayList<>(cantidad);
+        for (List<DatosProteccion> lista : porMundo.values())
+            out.addAll(lista);
+        return out;
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    /** Cantidad de mundos con protecciones en reposo. */
+    public int mundos() {
+        return porMundo.size();
+    }
+}
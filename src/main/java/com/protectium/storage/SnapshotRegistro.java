@@ -0,0 +1,406 @@
+package com.protectium.storage;
+
+import com.protectium.protection.CubeRegion;
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import com.protectium.registry.ProtectionRegistry;
+import com.protectium.task.TareaFraccionada;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Copia inmutable y plana del registro para guardar: solo arreglos
+ * primitivos y dos tablas de cadenas, sin objetos por protección.
+ *
+ * Se captura en el hilo principal (donde ocurren las mutaciones), así que
+ * miembros y flags de cada protección quedan consistentes entre sí. La
+ * serialización después corre en el hilo de guardado sin tocar el
+ * registro vivo.
+ *
+ * La protección i tiene sus miembros en [inicioMiembros(i), finMiembros(i))
+ * y sus flags en [inicioFlags(i), finFlags(i)).
+ */
+public final class SnapshotRegistro {
+
+    private static final ProtectionType[] TIPOS = ProtectionType.values();
+    private static final ProtectionRecord.MemberRole[] ROLES = ProtectionRecord.MemberRole.values();
+
+    private final long version;
+    private final int cantidad;
+
+    // Por protección (UUIDs en dos longs consecutivos: alto, bajo)
+    private final long[] ids;
+    private final long[] duenos;
+    private final long[] marcas;
+    private final byte[] tipos;
+    private final int[] radios;
+    private final int[] mundos;
+    private final int[] coords;
+    private final int[] inicioMiembros;
+    private final int[] inicioFlags;
+
+    // Por miembro / por flag
+    private final long[] miembros;
+    private final byte[] roles;
+    private final int[] clavesFlag;
+    private final boolean[] valoresFlag;
+
+    private final String[] nombresMundo;
+    private final String[] nombresFlag;
+
+    private SnapshotRegistro(Constructor c, long version) {
+        this.version = version;
+        this.cantidad = c.n;
+        this.ids = Arrays.copyOf(c.ids, c.n * 2);
+        this.duenos = Arrays.copyOf(c.duenos, c.n * 2);
+        this.marcas = Arrays.copyOf(c.marcas, c.n);
+        this.tipos = Arrays.copyOf(c.tipos, c.n);
+        this.radios = Arrays.copyOf(c.radios, c.n);
+        this.mundos = Arrays.copyOf(c.mundos, c.n);
+        this.coords = Arrays.copyOf(c.coords, c.n * 3);
+        this.inicioMiembros = Arrays.copyOf(c.inicioMiembros, c.n + 1);
+        this.inicioFlags = Arrays.copyOf(c.inicioFlags, c.n + 1);
+        this.miembros = Arrays.copyOf(c.miembros, c.nMiembros * 2);
+        this.roles = Arrays.copyOf(c.roles, c.nMiembros);
+        this.clavesFlag = Arrays.copyOf(c.clavesFlag, c.nFlags);
+        this.valoresFlag = Arrays.copyOf(c.valoresFlag, c.nFlags);
+        this.nombresMundo = c.nombresMundo.toArray(new String[0]);
+        this.nombresFlag = c.nombresFlag.toArray(new String[0]);
+    }
+
+    /**
+     * Copia el estado actual del registro. Llamar desde el hilo que muta
+     * el registro (el principal) para que el resultado sea consistente.
+     */
+    public static SnapshotRegistro capturar(ProtectionRegistry registry) {
+        return capturar(registry, Collections.emptyList());
+    }
+
+    /**
+     * Igual que {@link #capturar(ProtectionRegistry)}, sumando las
+     * protecciones de mundos descargados, que no están en el registro pero
+     * se tienen que seguir guardando.
+     */
+    public static SnapshotRegistro capturar(ProtectionRegistry registry, Collection<DatosProteccion> inactivas) {
+        Captura captura = new Captura(registry, () -> inactivas);
+        captura.avanzar(Long.MAX_VALUE);
+        return captura.getResultado().join();
+    }
+
+    /**
+     * Snapshot a partir de datos leídos de disco (migraciones). Las
+     * entradas sin tipo válido se descartan: nunca se podrían restaurar.
+     */
+    public static SnapshotRegistro desde(List<DatosProteccion> datos) {
+        Constructor c = new Constructor(datos.size());
+        for (DatosProteccion d : datos)
+            agregar(c, d);
+        return new SnapshotRegistro(c, -1);
+    }
+
+    private static void agregar(Constructor c, DatosProteccion d) {
+        if (d.getTipo() == null)
+            return;
+        c.abrir(d.getId(), d.getTipo(), d.getColocadoPor(), d.getMarcaTiempo(), d.getRadio(),
+                d.getMundo(), d.getX(), d.getY(), d.getZ());
+        d.getMiembros().forEach(c.alMiembro);
+        d.getFlags().forEach(c.alFlag);
+    }
+
+    // ---------------------------------------------------------------
+    // Captura fraccionada
+    // ---------------------------------------------------------------
+
+    /**
+     * Captura repartida en varios ticks por el PlanificadorFraccionado.
+     *
+     * En el primer avance copia la lista de protecciones y de inactivas;
+     * después copia cada protección en el avance que le toque. El resultado
+     * no es una foto de un solo instante, pero no hace falta: el journal se
+     * rota antes de empezar, así que todo cambio ocurrido durante la captura
+     * queda en el journal nuevo, y reproducirlo sobre el snapshot da el
+     * estado correcto (cada entrada fija un valor absoluto).
+     *
+     * Activar o desactivar un mundo no pasa por el journal; por eso las
+     * inactivas se copian junto con la lista del registro, en el mismo avance.
+     */
+    public static final class Captura implements TareaFraccionada {
+
+        /** Protecciones copiadas entre cada consulta del reloj. */
+        private static final int POR_CONSULTA = 32;
+
+        private final ProtectionRegistry registry;
+        private final Supplier<Collection<DatosProteccion>> inactivas;
+        private final CompletableFuture<SnapshotRegistro> resultado = new CompletableFuture<>();
+
+        private long version;
+        private List<ProtectionRecord> protecciones;
+        private Collection<DatosProteccion> copiaInactivas;
+        private Constructor c;
+        private int siguiente;
+        private long nanos;
+        private int avances;
+
+        public Captura(ProtectionRegistry registry, Supplier<Collection<DatosProteccion>> inactivas) {
+            this.registry = registry;
+            this.inactivas = inactivas;
+        }
+
+        /** Debe correr en el hilo principal. */
+        @Override
+        public boolean avanzar(long limiteNanos) {
+            if (resultado.isDone())
+                return false; // cancelada
+            long inicio = System.nanoTime();
+            avances++;
+
+            if (protecciones == null) {
+                version = registry.getVersion();
+                protecciones = registry.todas();
+                copiaInactivas = inactivas.get();
+                c = new Constructor(protecciones.size() + copiaInactivas.size());
+            }
+
+            int n = protecciones.size();
+            while (siguiente < n) {
+                int hasta = Math.min(n, siguiente + POR_CONSULTA);
+                for (; siguiente < hasta; siguiente++)
+                    agregar(c, protecciones.get(siguiente));
+                if (System.nanoTime() >= limiteNanos)
+                    break;
+            }
+
+            if (siguiente < n) {
+                nanos += System.nanoTime() - inicio;
+                return true;
+            }
+
+            for (DatosProteccion d : copiaInactivas)
+                agregar(c, d);
+            SnapshotRegistro snapshot = new SnapshotRegistro(c, version);
+            protecciones = null;
+            c = null;
+            // Antes de completar: quien espera el resultado lee las estadísticas
+            nanos += System.nanoTime() - inicio;
+            resultado.complete(snapshot);
+            return false;
+        }
+
+        /** Se completa en el hilo principal al terminar la captura. */
+        public CompletableFuture<SnapshotRegistro> getResultado() {
+            return resultado;
+        }
+
+        /** Descarta la captura; el planificador la quita en su próximo turno. */
+        public void cancelar() {
+            resultado.cancel(false);
+        }
+
+        /** Tiempo total de hilo principal usado, sumando todos los avances. */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /** Cantidad de avances (ticks) que llevó la captura. */
+        public int getAvances() {
+            return avances;
+        }
+    }
+
+    private static void agregar(Constructor c, ProtectionRecord rec) {
+        CubeRegion cubo = rec.getCubo();
+        c.abrir(rec.getId(), rec.getTipo(), rec.getColocadoPor(), rec.getMarcaTiempo(), cubo.getRadio(),
+                cubo.getWorldName(), cubo.getCenterX(), cubo.getCenterY(), cubo.getCenterZ());
+        rec.forEachMiembro(c.alMiembro);
+        rec.forEachFlag(c.alFlag);
+    }
+
+    // ---------------------------------------------------------------
+    // Lectura por índice
+    // ---------------------------------------------------------------
+
+    /** Versión del registro al capturar, o -1 si no viene del registro. */
+    public long getVersion() {
+        return version;
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    public UUID id(int i) {
+        return new UUID(ids[i * 2], ids[i * 2 + 1]);
+    }
+
+    public ProtectionType tipo(int i) {
+        return TIPOS[tipos[i]];
+    }
+
+    public UUID colocadoPor(int i) {
+        return new UUID(duenos[i * 2], duenos[i * 2 + 1]);
+    }
+
+    public long marcaTiempo(int i) {
+        return marcas[i];
+    }
+
+    public int radio(int i) {
+        return radios[i];
+    }
+
+    public String mundo(int i) {
+        return nombresMundo[mundos[i]];
+    }
+
+    public int x(int i) {
+        return coords[i * 3];
+    }
+
+    public int y(int i) {
+        return coords[i * 3 + 1];
+    }
+
+    public int z(int i) {
+        return coords[i * 3 + 2];
+    }
+
+    public int inicioMiembros(int i) {
+        return inicioMiembros[i];
+    }
+
+    public int finMiembros(int i) {
+        return inicioMiembros[i + 1];
+    }
+
+    public UUID miembro(int j) {
+        return new UUID(miembros[j * 2], miembros[j * 2 + 1]);
+    }
+
+    public ProtectionRecord.MemberRole rol(int j) {
+        return ROLES[roles[j]];
+    }
+
+    public int inicioFlags(int i) {
+        return inicioFlags[i];
+    }
+
+    public int finFlags(int i) {
+        return inicioFlags[i + 1];
+    }
+
+    public String claveFlag(int k) {
+        return nombresFlag[clavesFlag[k]];
+    }
+
+    public boolean valorFlag(int k) {
+        return valoresFlag[k];
+    }
+
+    // ---------------------------------------------------------------
+    // Construcción
+    // ---------------------------------------------------------------
+
+    /** Acumula en arreglos que crecen; el snapshot final los recorta. */
+    private static final class Constructor {
+        int n, nMiembros, nFlags;
+        long[] ids, duenos, marcas;
+        byte[] tipos;
+        int[] radios, mundos, coords, inicioMiembros, inicioFlags;
+        long[] miembros;
+        byte[] roles;
+        int[] clavesFlag;
+        boolean[] valoresFlag;
+
+        final List<String> nombresMundo = new ArrayList<>();
+        final Map<String, Integer> indiceMundo = new HashMap<>();
+        final List<String> nombresFlag = new ArrayList<>();
+        final Map<String, Integer> indiceFlag = new HashMap<>();
+
+        final BiConsumer<UUID, ProtectionRecord.MemberRole> alMiembro = this::miembro;
+        final BiConsumer<String, Boolean> alFlag = this::flag;
+
+        Constructor(int capacidad) {
+            int c = Math.max(capacidad, 1);
+            ids = new long[c * 2];
+            duenos = new long[c * 2];
+            marcas = new long[c];
+            tipos = new byte[c];
+            radios = new int[c];
+            mundos = new int[c];
+            coords = new int[c * 3];
+            inicioMiembros = new int[c + 1];
+            inicioFlags = new int[c + 1];
+            miembros = new long[c * 4];
+            roles = new byte[c * 2];
+            clavesFlag = new int[c * 12];
+            valoresFlag = new boolean[c * 12];
+        }
+
+        void abrir(UUID id, ProtectionType tipo, UUID colocadoPor, long marca, int radio,
+                String mundo, int x, int y, int z) {
+            if (n == marcas.length)
+                crecerProtecciones();
+            ids[n * 2] = id.getMostSignificantBits();
+            ids[n * 2 + 1] = id.getLeastSignificantBits();
+            duenos[n * 2] = colocadoPor.getMostSignificantBits();
+            duenos[n * 2 + 1] = colocadoPor.getLeastSignificantBits();
+            marcas[n] = marca;
+            tipos[n] = (byte) tipo.ordinal();
+            radios[n] = radio;
+            mundos[n] = indice(indiceMundo, nombresMundo, mundo);
+            coords[n * 3] = x;
+            coords[n * 3 + 1] = y;
+            coords[n * 3 + 2] = z;
+            n++;
+            inicioMiembros[n] = nMiembros;
+            inicioFlags[n] = nFlags;
+        }
+
+        void miembro(UUID jugador, ProtectionRecord.MemberRole rol) {
+            if (nMiembros == roles.length) {
+                miembros = Arrays.copyOf(miembros, miembros.length * 2);
+                roles = Arrays.copyOf(roles, roles.length * 2);
+            }
+            miembros[nMiembros * 2] = jugador.getMostSignificantBits();
+            miembros[nMiembros * 2 + 1] = jugador.getLeastSignificantBits();
+            roles[nMiembros] = (byte) rol.ordinal();
+            inicioMiembros[n] = ++nMiembros;
+        }
+
+        void flag(String clave, Boolean valor) {
+            if (nFlags == valoresFlag.length) {
+                clavesFlag = Arrays.copyOf(clavesFlag, clavesFlag.length * 2);
+                valoresFlag = Arrays.copyOf(valoresFlag, valoresFlag.length * 2);
+            }
+            clavesFlag[nFlags] = indice(indiceFlag, nombresFlag, clave);
+            valoresFlag[nFlags] = valor;
+            inicioFlags[n] = ++nFlags;
+        }
+
+        private static int indice(Map<String, Integer> indices, List<String> nombres, String s) {
+            Integer i = indices.get(s);
+            if (i == null) {
+                i = nombres.size();
+                nombres.add(s);
+                indices.put(s, i);
+            }
+            return i;
+        }
+
+        private void crecerProtecciones() {
+            int c = marcas.length * 2;
+            ids = Arrays.copyOf(ids, c * 2);
+            duenos = Arrays.copyOf(duenos, c * 2);
+            marcas = Arrays.copyOf(marcas, c);
+            tipos = Arrays.copyOf(tipos, c);
+            radios = Arrays.copyOf(radios, c);
+            mundos = Arrays.copyOf(mundos, c);
+            coords = Arrays.copyOf(coords, c * 3);
+            inicioMiembros = Arrays.copyOf(inicioMiembros, c + 1);
+            inicioFlags = Arrays.copyOf(inicioFlags, c + 1);
+        }
+    }
+}
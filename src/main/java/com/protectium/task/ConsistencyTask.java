@@ -3,31 +3,66 @@ package com.protectium.task;
 import com.protectium.core.ProtectiumPlugin;
 import com.protectium.item.ItemAuthority;
 import com.protectium.protection.ProtectionRecord;
+import com.protectium.registry.LongHashMap;
 import com.protectium.registry.ProtectionRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.bukkit.Material;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.World;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
- * Tarea de consistencia que verifica periódicamente que todos los
- * bloques de protección siguen existiendo en el mundo.
+ * Tarea de consistencia que verifica que los bloques de protección siguen
+ * existiendo en el mundo.
  *
  * Si algún bloque fue eliminado por medio externo (plugins, NBT editing,
  * mundo corrupto, etc.), esta tarea limpia la protección huérfana.
  *
- * Se ejecuta cada 5 segundos (100 ticks) por defecto.
+ * Trabaja de forma incremental y nunca carga chunks:
+ * - Al cargarse un chunk se verifican sus protecciones (ver ListenerChunks).
+ *   Cubre también las protecciones restauradas al arrancar.
+ * - Recorre en ronda los chunks cargados, dentro del presupuesto que le da
+ *   el PlanificadorFraccionado. Una vuelta completa puede repartirse en
+ *   varios ticks; al terminarla espera PERIODO_VUELTA_NANOS (un minuto,
+ *   como la tarea periódica original) antes de empezar la siguiente. Los
+ *   chunks descargados salen de la ronda al llegarles el turno.
+ *
  * Es un safety net, no el mecanismo principal (ese es ListenerRomper).
+ * Solo se usa desde el hilo principal.
  */
-public final class ConsistencyTask extends BukkitRunnable {
+public final class ConsistencyTask implements TareaFraccionada {
+
+    /** Mínimo entre el inicio de una vuelta por los chunks cargados y el de la siguiente. */
+    private static final long PERIODO_VUELTA_NANOS = 60_000_000_000L;
 
     private final ProtectionRegistry registry;
     private final ItemAuthority itemAuthority;
     private final Logger logger;
 
+    // Ronda de chunks cargados y su conjunto para no encolar dos veces
+    private final ArrayDeque<ChunkEnRonda> ronda = new ArrayDeque<>();
+    private final Map<UUID, LongHashMap<ChunkEnRonda>> enRonda = new HashMap<>();
+
+    // Reutilizada en cada chunk: las protecciones se juntan antes de
+    // eliminar para no mutar el índice mientras se recorre
+    private final List<ProtectionRecord> delChunk = new ArrayList<>();
+
+    // Chunks que faltan en la vuelta actual (0: vuelta terminada) y
+    // cuándo puede empezar la próxima
+    private int pendientesVuelta;
+    private long proximaVuelta = System.nanoTime();
+
+    private long verificadas;
+    private long eliminadas;
+    private long chunksRevisados;
+
     public ConsistencyTask(ProtectionRegistry registry, ItemAuthority itemAuthority,
             ProtectiumPlugin plugin) {
         this.registry = registry;
@@ -35,37 +70,131 @@ public final class ConsistencyTask extends BukkitRunnable {
         this.logger = plugin.getLogger();
     }
 
-    @Override
-    public void run() {
-        List<ProtectionRecord> todas = registry.todas();
-        if (todas.isEmpty())
-            return;
+    /**
+     * Encola los chunks que ya estaban cargados antes de empezar (spawn,
+     * jugadores conectados durante un reload). Los siguientes entran por
+     * ChunkLoadEvent.
+     */
+    public void encolarCargados() {
+        for (World mundo : Bukkit.getWorlds()) {
+            for (Chunk chunk : mundo.getLoadedChunks())
+                encolar(mundo.getUID(), chunk.getX(), chunk.getZ());
+        }
+    }
 
-        List<Location> huerfanas = new ArrayList<>();
+    /** Verifica las protecciones del chunk recién cargado y lo suma a la ronda. */
+    public void alCargarChunk(Chunk chunk) {
+        World mundo = chunk.getWorld();
+        verificarChunk(mundo, chunk.getX(), chunk.getZ());
+        encolar(mundo.getUID(), chunk.getX(), chunk.getZ());
+    }
 
-        for (ProtectionRecord rec : todas) {
-            Location loc = rec.getUbicacionBloque();
+    @Override
+    public boolean avanzar(long limiteNanos) {
+        if (pendientesVuelta == 0) {
+            long ahora = System.nanoTime();
+            if (ahora - proximaVuelta < 0 || ronda.isEmpty())
+                return true;
+            // Los chunks que entren durante la vuelta ya se verificaron al
+            // cargarse: quedan para la siguiente
+            pendientesVuelta = ronda.size();
+            proximaVuelta = ahora + PERIODO_VUELTA_NANOS;
+        }
 
-            // Si el mundo no está cargado, no podemos verificar
-            if (loc.getWorld() == null)
+        while (pendientesVuelta > 0 && System.nanoTime() < limiteNanos) {
+            pendientesVuelta--;
+            ChunkEnRonda c = ronda.pollFirst();
+            World mundo = Bukkit.getWorld(c.mundo);
+            if (mundo == null || !mundo.isChunkLoaded(c.cx, c.cz)) {
+                sacar(c);
                 continue;
-
-            // Verificar simplemente que el bloque exista (no sea aire)
-            Material materialActual = loc.getBlock().getType();
-            if (materialActual == Material.AIR || materialActual == Material.CAVE_AIR
-                    || materialActual == Material.VOID_AIR) {
-                huerfanas.add(loc);
             }
+            verificarChunk(mundo, c.cx, c.cz);
+            ronda.addLast(c);
         }
+        return true;
+    }
+
+    // ---------------------------------------------------------------
+    // Verificación
+    // ---------------------------------------------------------------
+
+    /** El chunk tiene que estar cargado: los bloques se leen sin cargarlo. */
+    private void verificarChunk(World mundo, int cx, int cz) {
+        chunksRevisados++;
+        registry.forEachEnChunk(mundo, cx, cz, delChunk::add);
+        if (delChunk.isEmpty())
+            return;
+
+        for (ProtectionRecord rec : delChunk) {
+            verificadas++;
+            Location loc = rec.getUbicacionBloque();
+            if (!mundo.getBlockAt(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ()).getType().isAir())
+                continue;
 
-        // Eliminar protecciones huérfanas
-        for (Location loc : huerfanas) {
             ProtectionRecord eliminado = registry.eliminar(loc);
             if (eliminado != null) {
+                eliminadas++;
                 String pos = String.format("%s:%d:%d:%d",
-                        loc.getWorld().getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+                        mundo.getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
                 logger.warning("Protección huérfana eliminada: " + pos);
             }
         }
+        delChunk.clear();
+    }
+
+    private void encolar(UUID mundo, int cx, int cz) {
+        LongHashMap<ChunkEnRonda> chunks = enRonda.computeIfAbsent(mundo, k -> new LongHashMap<>());
+        long clave = LongHashMap.empaquetar(cx, cz);
+        if (chunks.containsKey(clave))
+            return;
+        ChunkEnRonda c = new ChunkEnRonda(mundo, cx, cz);
+        chunks.put(clave, c);
+        ronda.addLast(c);
+    }
+
+    private void sacar(ChunkEnRonda c) {
+        LongHashMap<ChunkEnRonda> chunks = enRonda.get(c.mundo);
+        if (chunks == null)
+            return;
+        chunks.remove(LongHashMap.empaquetar(c.cx, c.cz));
+        if (chunks.isEmpty())
+            enRonda.remove(c.mundo);
+    }
+
+    // ---------------------------------------------------------------
+    // Estadísticas
+    // ---------------------------------------------------------------
+
+    /** Protecciones cuyo bloque se comprobó (incluye repeticiones). */
+    public long getVerificadas() {
+        return verificadas;
+    }
+
+    /** Protecciones eliminadas por no tener bloque. */
+    public long getEliminadas() {
+        return eliminadas;
+    }
+
+    public long getChunksRevisados() {
+        return chunksRevisados;
+    }
+
+    /** Chunks cargados en la ronda. */
+    public int getChunksEnRonda() {
+        return ronda.size();
+    }
+
+    /** Chunk en la ronda. Guarda el UUID del mundo, no el mundo: no lo retiene si se descarga. */
+    private static final class ChunkEnRonda {
+        final UUID mundo;
+        final int cx;
+        final int cz;
+
+        ChunkEnRonda(UUID mundo, int cx, int cz) {
+            this.mundo = mundo;
+            this.cx = cx;
+            this.cz = cz;
+        }
     }
 }
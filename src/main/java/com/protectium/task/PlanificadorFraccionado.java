@@ -0,0 +1,121 @@
+package com.protectium.task;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * Corre las tareas periódicas de Protectium en el hilo principal con un
+ * presupuesto de tiempo fijo por tick (planificador.presupuesto-us).
+ *
+ * Cada tick reparte el presupuesto entre las tareas, empezando cada vez
+ * por una distinta para que ninguna se quede sin turno. Lo que no entra
+ * sigue en el tick siguiente: así ninguna tarea, por grande que sea el
+ * servidor, dispara el MSPT de un tick.
+ *
+ * Las tareas se pueden agregar desde cualquier hilo (el de guardado pide
+ * así sus capturas); se incorporan al empezar el próximo tick.
+ */
+public final class PlanificadorFraccionado extends BukkitRunnable {
+
+    private final long presupuestoNanos;
+    private final Logger logger;
+
+    private final List<TareaFraccionada> tareas = new ArrayList<>();
+    private final Queue<TareaFraccionada> entrantes = new ConcurrentLinkedQueue<>();
+    private int primera;
+
+    // Estadísticas, para /prot estado
+    private volatile long ultimoTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long ticksAgotados;
+
+    public PlanificadorFraccionado(long presupuestoNanos, Logger logger) {
+        this.presupuestoNanos = presupuestoNanos;
+        this.logger = logger;
+    }
+
+    /** Suma una tarea. Thread-safe. */
+    public void agregar(TareaFraccionada tarea) {
+        entrantes.add(tarea);
+    }
+
+    @Override
+    public void run() {
+        TareaFraccionada nueva;
+        while ((nueva = entrantes.poll()) != null)
+            tareas.add(nueva);
+
+        int n = tareas.size();
+        if (n == 0) {
+            ultimoTickNanos = 0;
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        long limite = inicio + presupuestoNanos;
+        boolean hayTerminadas = false;
+        int desde = primera % n;
+
+        for (int i = 0; i < n; i++) {
+            if (System.nanoTime() >= limite) {
+                ticksAgotados++;
+                break;
+            }
+            int indice = (desde + i) % n;
+            TareaFraccionada tarea = tareas.get(indice);
+            boolean sigue;
+            try {
+                sigue = tarea.avanzar(limite);
+            } catch (RuntimeException e) {
+                logger.severe("§c Error en tarea " + tarea.getClass().getSimpleName() + ", se quita: " + e);
+                sigue = false;
+            }
+            if (!sigue) {
+                tareas.set(indice, null);
+                hayTerminadas = true;
+            }
+        }
+
+        if (hayTerminadas)
+            tareas.removeIf(t -> t == null);
+        primera = desde + 1;
+
+        long duracion = System.nanoTime() - inicio;
+        ultimoTickNanos = duracion;
+        if (duracion > maxTickNanos)
+            maxTickNanos = duracion;
+    }
+
+    // ---------------------------------------------------------------
+    // Estadísticas
+    // ---------------------------------------------------------------
+
+    public long getPresupuestoNanos() {
+        return presupuestoNanos;
+    }
+
+    /** Tiempo usado en el último tick, en nanosegundos. */
+    public long getUltimoTickNanos() {
+        return ultimoTickNanos;
+    }
+
+    /** Peor tick desde el arranque, en nanosegundos. */
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /** Ticks en los que el presupuesto no alcanzó para todas las tareas. */
+    public long getTicksAgotados() {
+        return ticksAgotados;
+    }
+
+    /** Tareas activas (sin contar las que entran en el próximo tick). */
+    public int getTareas() {
+        return tareas.size();
+    }
+}
@@ -0,0 +1,19 @@
+package com.protectium.task;
+
+/**
+ * Trabajo del hilo principal que se puede repartir en varios ticks.
+ * El PlanificadorFraccionado la llama una vez por tick con un límite de
+ * tiempo; la tarea guarda su propio cursor y retoma donde quedó.
+ */
+public interface TareaFraccionada {
+
+    /**
+     * Avanza hasta terminar o hasta que System.nanoTime() llegue al
+     * límite. Conviene mirar el reloj cada pocas unidades de trabajo, no
+     * en cada una.
+     *
+     * @param limiteNanos instante (System.nanoTime) en que hay que ceder
+     * @return true si la tarea sigue viva; false para quitarla del planificador
+     */
+    boolean avanzar(long limiteNanos);
+}
@@ -1,52 +1,35 @@
-package com.protectium.task;
+package com.protectium.zone;
 
 import com.protectium.protection.ProtectionRecord;
-import com.protectium.registry.ProtectionRegistry;
 import net.kyori.adventure.bossbar.BossBar;
 import net.kyori.adventure.text.Component;
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
 
 /**
- * Tarea periódica que verifica la ubicación de los jugadores
- * y muestra una BossBar si están dentro de una protección.
+ * Muestra una BossBar mientras el jugador está dentro de una protección.
+ *
+ * Suscrita al PlayerZoneTracker: solo trabaja cuando la zona del jugador
+ * cambia (movimiento a otra columna, teleport, protección creada o
+ * eliminada). Sin sondeo periódico; un jugador quieto no cuesta nada.
  */
-public final class BossBarTask extends BukkitRunnable {
+public final class BossBarZona implements OyenteZona {
 
-    private final ProtectionRegistry registry;
-    // Cache de BossBars por jugador para evitar crearlas/destruirlas cada tick
+    // Cache de BossBars por jugador para evitar crearlas/destruirlas en cada cambio
     private final Map<UUID, BossBar> activeBars = new HashMap<>();
     private final Map<UUID, UUID> lastProtectionId = new HashMap<>();
 
-    public BossBarTask(ProtectionRegistry registry) {
-        this.registry = registry;
-    }
-
     @Override
-    public void run() {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            updatePlayer(player);
-        }
-
-        // Limpiar cache de desconectados
-        activeBars.keySet().removeIf(uuid -> Bukkit.getPlayer(uuid) == null);
-        lastProtectionId.keySet().removeIf(uuid -> Bukkit.getPlayer(uuid) == null);
-    }
-
-    private void updatePlayer(Player player) {
-        List<ProtectionRecord> contenedoras = registry.buscarContenedoras(player.getLocation());
-
-        if (contenedoras.isEmpty()) {
+    public void alCambiarZona(Player player, ProtectionRecord[] antes, ProtectionRecord[] ahora) {
+        if (ahora.length == 0) {
             removeBar(player);
             lastProtectionId.remove(player.getUniqueId());
             return;
         }
 
         // Tomamos la primera (o la más relevante si hubiera prioridades)
-        ProtectionRecord actual = contenedoras.get(0);
+        ProtectionRecord actual = ahora[0];
 
         // Si cambió de protección o no tenía barra
         if (!activeBars.containsKey(player.getUniqueId()) ||
@@ -58,6 +41,13 @@ public final class BossBarTask extends BukkitRunnable {
         }
     }
 
+    @Override
+    public void alSalir(Player player) {
+        // Desconectado: la barra se va con el cliente, solo se limpia la cache
+        activeBars.remove(player.getUniqueId());
+        lastProtectionId.remove(player.getUniqueId());
+    }
+
     private void createBar(Player player, ProtectionRecord rec) {
         // Obtenemos el nombre (item custom name) o el tipo
         // Como no tenemos el item a mano, usamos el nombre del tipo por defecto
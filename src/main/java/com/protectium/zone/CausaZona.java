@@ -0,0 +1,20 @@
+package com.protectium.zone;
+
+/** Qué hizo cambiar la zona de un jugador. */
+public enum CausaZona {
+
+    /** El jugador caminó, voló o fue empujado a otra columna. */
+    MOVIMIENTO,
+    TELEPORT,
+    RESPAWN,
+    /** El jugador se conectó (o el plugin arrancó con él conectado). */
+    CONEXION,
+    DESCONEXION,
+    /** Se creó o eliminó una protección alrededor del jugador. */
+    PROTECCION;
+
+    /** ¿Cancelar un ProtectionEnterEvent con esta causa impide la entrada? */
+    public boolean esEvitable() {
+        return this == MOVIMIENTO || this == TELEPORT;
+    }
+}
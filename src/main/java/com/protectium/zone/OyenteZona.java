@@ -0,0 +1,21 @@
+package com.protectium.zone;
+
+import com.protectium.protection.ProtectionRecord;
+import org.bukkit.entity.Player;
+
+/**
+ * Suscriptor del PlayerZoneTracker. Se llama en el hilo principal y solo
+ * cuando el conjunto de protecciones que contienen al jugador cambió.
+ */
+public interface OyenteZona {
+
+    /**
+     * @param antes protecciones que contenían al jugador (compartido, no modificar)
+     * @param ahora protecciones que lo contienen ahora (compartido, no modificar)
+     */
+    void alCambiarZona(Player jugador, ProtectionRecord[] antes, ProtectionRecord[] ahora);
+
+    /** El jugador se desconectó: liberar lo que se guarde de él. */
+    default void alSalir(Player jugador) {
+    }
+}
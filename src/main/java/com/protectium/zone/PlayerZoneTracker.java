@@ -0,0 +1,335 @@
+package com.protectium.zone;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.registry.AreaColumnas;
+import com.protectium.registry.ObservadorRegistro;
+import com.protectium.registry.ProtectionRegistry;
+import com.protectium.task.TareaFraccionada;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Zona actual de cada jugador conectado: las protecciones que lo
+ * contienen. Se recalcula solo cuando algo puede cambiarla:
+ * - El jugador sale de su área estable: el rectángulo de columnas donde
+ *   las contenedoras no cambian (ver AreaColumnas), como mucho un chunk.
+ *   Las protecciones son columnas, así que saltar, caer o volar dentro del
+ *   área no consulta el registro.
+ * - Teleport, respawn y conexión.
+ * - Se crea o elimina una protección. El registro avisa (como observador):
+ *   sube la generación, así que el próximo movimiento de cualquier jugador
+ *   ya no confía en su área estable y consulta (una protección ENTRADA
+ *   recién creada se impide desde el primer paso). Los jugadores afectados
+ *   que no se mueven se recalculan en el próximo tick, dentro del
+ *   presupuesto del PlanificadorFraccionado, para publicarles la transición.
+ *
+ * Los suscriptores (OyenteZona) reciben solo las transiciones; un jugador
+ * quieto no cuesta nada. Para otros plugins cada transición se publica
+ * también como ProtectionEnterEvent / ProtectionLeaveEvent, uno por
+ * protección. Los eventos se crean solo si alguien los escucha.
+ *
+ * Movimiento y teleport se procesan en prioridad HIGH, antes de que pasen:
+ * así un ProtectionEnterEvent cancelado (ver ListenerEntrada) puede
+ * impedirlos. Si otro plugin los cancela después, la zona queda calculada
+ * para el destino hasta el próximo movimiento.
+ *
+ * Solo se usa desde el hilo principal, salvo los avisos del registro,
+ * que solo encolan.
+ */
+public final class PlayerZoneTracker implements Listener, ObservadorRegistro, TareaFraccionada {
+
+    private static final ProtectionRecord[] NINGUNA = new ProtectionRecord[0];
+
+    private final ProtectionRegistry registry;
+    private final Map<UUID, EstadoJugador> estados = new HashMap<>();
+    private final List<OyenteZona> oyentes = new CopyOnWriteArrayList<>();
+
+    // Sube con cada protección creada o eliminada: un área estable calculada
+    // con otra generación puede estar vieja. Solo se escribe dentro del lock
+    // del registro (los avisos llegan ahí).
+    private volatile long generacion;
+
+    // Protecciones creadas o eliminadas desde el último tick
+    private final Queue<ProtectionRecord> cambiadas = new ConcurrentLinkedQueue<>();
+    private final List<EstadoJugador> sucios = new ArrayList<>();
+
+    // Reutilizada en cada consulta: sin cambios, recalcular no reserva memoria
+    private final List<ProtectionRecord> consulta = new ArrayList<>();
+    private final AreaColumnas consultaArea = new AreaColumnas();
+
+    private long consultas;
+    private long evitadas;
+    private long transiciones;
+
+    public PlayerZoneTracker(ProtectionRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void suscribir(OyenteZona oyente) {
+        oyentes.add(oyente);
+    }
+
+    public void desuscribir(OyenteZona oyente) {
+        oyentes.remove(oyente);
+    }
+
+    /** Calcula la zona de los jugadores ya conectados (arranque o reload). */
+    public void iniciar() {
+        for (Player jugador : Bukkit.getOnlinePlayers())
+            actualizar(jugador, jugador.getLocation(), CausaZona.CONEXION);
+    }
+
+    /** Protecciones que contienen al jugador. No modificar el arreglo. */
+    public ProtectionRecord[] zonasDe(Player jugador) {
+        EstadoJugador estado = estados.get(jugador.getUniqueId());
+        return estado != null ? estado.zonas : NINGUNA;
+    }
+
+    // ---------------------------------------------------------------
+    // Eventos de jugador
+    // ---------------------------------------------------------------
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onMover(PlayerMoveEvent event) {
+        Location hacia = event.getTo();
+        EstadoJugador estado = estados.get(event.getPlayer().getUniqueId());
+        if (estado != null && estado.generacion == generacion && estado.mundo == hacia.getWorld()
+                && estado.estable.contiene(hacia.getBlockX(), hacia.getBlockZ())) {
+            evitadas++;
+            return;
+        }
+        // setTo(), no cancelar: cancelar + teleport genera loops de eventos
+        if (!actualizar(event.getPlayer(), hacia, CausaZona.MOVIMIENTO))
+            event.setTo(event.getFrom());
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent event) {
+        if (!actualizar(event.getPlayer(), event.getTo(), CausaZona.TELEPORT))
+            event.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        actualizar(event.getPlayer(), event.getRespawnLocation(), CausaZona.RESPAWN);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntrar(PlayerJoinEvent event) {
+        actualizar(event.getPlayer(), event.getPlayer().getLocation(), CausaZona.CONEXION);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onSalir(PlayerQuitEvent event) {
+        Player jugador = event.getPlayer();
+        EstadoJugador estado = estados.remove(jugador.getUniqueId());
+        if (estado == null)
+            return;
+        publicarSalidas(jugador, estado.zonas, NINGUNA, CausaZona.DESCONEXION);
+        for (OyenteZona oyente : oyentes)
+            oyente.alSalir(jugador);
+    }
+
+    // ---------------------------------------------------------------
+    // Observador del registro: invalida las áreas estables y encola; los
+    // jugadores quietos se procesan en avanzar()
+    // ---------------------------------------------------------------
+
+    @Override
+    public void alRegistrar(ProtectionRecord rec) {
+        generacion++;
+        cambiadas.add(rec);
+    }
+
+    @Override
+    public void alEliminar(ProtectionRecord rec) {
+        generacion++;
+        cambiadas.add(rec);
+    }
+
+    @Override
+    public boolean avanzar(long limiteNanos) {
+        ProtectionRecord rec;
+        while (System.nanoTime() < limiteNanos && (rec = cambiadas.poll()) != null)
+            marcarAfectados(rec);
+
+        int i = 0;
+        for (; i < sucios.size() && System.nanoTime() < limiteNanos; i++) {
+            EstadoJugador estado = sucios.get(i);
+            estado.sucio = false;
+            // Pudo desconectarse mientras esperaba
+            if (estados.get(estado.jugador.getUniqueId()) == estado)
+                actualizar(estado.jugador, estado.jugador.getLocation(), CausaZona.PROTECCION);
+        }
+        sucios.subList(0, i).clear();
+        return true;
+    }
+
+    /** Marca a los jugadores cuya área estable toca el cubo o que lo tenían en su zona. */
+    private void marcarAfectados(ProtectionRecord rec) {
+        World mundo = rec.getUbicacionBloque().getWorld();
+        for (EstadoJugador estado : estados.values()) {
+            if (estado.sucio || estado.mundo != mundo)
+                continue;
+            if (estado.estable.intersecta(rec.getCubo()) || contiene(estado.zonas, rec)) {
+                estado.sucio = true;
+                sucios.add(estado);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Cálculo
+    // ---------------------------------------------------------------
+
+    /** @return false si se canceló la entrada a alguna protección; la zona no cambia */
+    private boolean actualizar(Player jugador, Location ubicacion, CausaZona causa) {
+        if (ubicacion == null || ubicacion.getWorld() == null)
+            return true;
+        EstadoJugador estado = estados.computeIfAbsent(jugador.getUniqueId(), k -> new EstadoJugador(jugador));
+        estado.jugador = jugador;
+        return recalcular(estado, ubicacion, causa);
+    }
+
+    /**
+     * Calcula la zona en el destino y, si cambió, la publica. Mundo y área
+     * estable del estado se actualizan solo si el cambio se aplica.
+     */
+    private boolean recalcular(EstadoJugador estado, Location hacia, CausaZona causa) {
+        consultas++;
+        // Antes de consultar: un cambio durante la consulta deja el área vieja
+        long gen = generacion;
+        World mundo = hacia.getWorld();
+        registry.forEachContenedora(mundo, hacia.getBlockX(), hacia.getBlockZ(), consultaArea, consulta::add);
+        if (mismas(estado.zonas, consulta)) {
+            consulta.clear();
+            estado.mover(mundo, consultaArea, gen);
+            return true;
+        }
+        // Copiadas antes de publicar: un manejador de evento puede teleportar
+        // al jugador y volver a entrar aquí
+        ProtectionRecord[] ahora = consulta.isEmpty() ? NINGUNA : consulta.toArray(NINGUNA);
+        consulta.clear();
+        AreaColumnas area = new AreaColumnas();
+        area.copiar(consultaArea);
+
+        Player jugador = estado.jugador;
+        ProtectionRecord[] antes = estado.zonas;
+        if (!publicarEntradas(jugador, antes, ahora, hacia, causa))
+            return false;
+
+        estado.mover(mundo, area, gen);
+        estado.zonas = ahora;
+        transiciones++;
+        publicarSalidas(jugador, antes, ahora, causa);
+        for (OyenteZona oyente : oyentes)
+            oyente.alCambiarZona(jugador, antes, ahora);
+        return true;
+    }
+
+    /** @return false si se canceló alguna entrada evitable */
+    private static boolean publicarEntradas(Player jugador, ProtectionRecord[] antes, ProtectionRecord[] ahora,
+            Location hacia, CausaZona causa) {
+        if (ProtectionEnterEvent.getHandlerList().getRegisteredListeners().length == 0)
+            return true;
+        for (ProtectionRecord rec : ahora) {
+            if (contiene(antes, rec))
+                continue;
+            ProtectionEnterEvent evento = new ProtectionEnterEvent(jugador, rec, causa, hacia);
+            Bukkit.getPluginManager().callEvent(evento);
+            if (evento.isCancelled() && causa.esEvitable())
+                return false;
+        }
+        return true;
+    }
+
+    private static void publicarSalidas(Player jugador, ProtectionRecord[] antes, ProtectionRecord[] ahora,
+            CausaZona causa) {
+        if (ProtectionLeaveEvent.getHandlerList().getRegisteredListeners().length == 0)
+            return;
+        for (ProtectionRecord rec : antes) {
+            if (!contiene(ahora, rec))
+                Bukkit.getPluginManager().callEvent(new ProtectionLeaveEvent(jugador, rec, causa));
+        }
+    }
+
+    /** Mismo conjunto, sin importar el orden (las zonas son pocas). */
+    private static boolean mismas(ProtectionRecord[] antes, List<ProtectionRecord> ahora) {
+        if (antes.length != ahora.size())
+            return false;
+        for (ProtectionRecord rec : ahora) {
+            if (!contiene(antes, rec))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean contiene(ProtectionRecord[] zonas, ProtectionRecord rec) {
+        for (ProtectionRecord z : zonas) {
+            if (z == rec)
+                return true;
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------
+    // Estadísticas
+    // ---------------------------------------------------------------
+
+    /** Consultas al registro hechas por el tracker. */
+    public long getConsultas() {
+        return consultas;
+    }
+
+    /** Movimientos resueltos sin consultar, por seguir dentro del área estable. */
+    public long getEvitadas() {
+        return evitadas;
+    }
+
+    /** Cambios de zona publicados a los suscriptores. */
+    public long getTransiciones() {
+        return transiciones;
+    }
+
+    public int getJugadores() {
+        return estados.size();
+    }
+
+    private static final class EstadoJugador {
+        Player jugador;
+        World mundo;
+        final AreaColumnas estable = new AreaColumnas();
+        ProtectionRecord[] zonas = NINGUNA;
+        long generacion = -1;
+        boolean sucio;
+
+        EstadoJugador(Player jugador) {
+            this.jugador = jugador;
+        }
+
+        void mover(World mundo, AreaColumnas area, long generacion) {
+            this.mundo = mundo;
+            this.estable.copiar(area);
+            this.generacion = generacion;
+        }
+    }
+}
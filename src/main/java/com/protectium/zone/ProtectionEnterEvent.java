@@ -0,0 +1,66 @@
+package com.protectium.zone;
+
+import com.protectium.protection.ProtectionRecord;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Un jugador entra a una protección. Lo publica el PlayerZoneTracker, una
+ * vez por protección nueva, antes de aplicar el cambio de zona.
+ *
+ * Cancelarlo impide la entrada solo si la causa es evitable
+ * (MOVIMIENTO o TELEPORT): el movimiento vuelve al origen o el teleport se
+ * cancela, y el jugador no entra a ninguna de las protecciones nuevas. Con
+ * otras causas el jugador ya está dentro y cancelar no tiene efecto.
+ */
+public final class ProtectionEnterEvent extends PlayerEvent implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final ProtectionRecord proteccion;
+    private final CausaZona causa;
+    private final Location hacia;
+    private boolean cancelado;
+
+    public ProtectionEnterEvent(Player jugador, ProtectionRecord proteccion, CausaZona causa, Location hacia) {
+        super(jugador);
+        this.proteccion = proteccion;
+        this.causa = causa;
+        this.hacia = hacia;
+    }
+
+    public ProtectionRecord getProteccion() {
+        return proteccion;
+    }
+
+    public CausaZona getCausa() {
+        return causa;
+    }
+
+    /** Donde queda el jugador si entra. No modificar. */
+    public Location getHacia() {
+        return hacia;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelado;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelado) {
+        this.cancelado = cancelado;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
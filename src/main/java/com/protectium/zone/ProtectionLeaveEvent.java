@@ -0,0 +1,42 @@
+package com.protectium.zone;
+
+import com.protectium.protection.ProtectionRecord;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Un jugador sale de una protección: se movió fuera, se desconectó o la
+ * protección se eliminó. Lo publica el PlayerZoneTracker ya aplicado el
+ * cambio; no se puede cancelar.
+ */
+public final class ProtectionLeaveEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final ProtectionRecord proteccion;
+    private final CausaZona causa;
+
+    public ProtectionLeaveEvent(Player jugador, ProtectionRecord proteccion, CausaZona causa) {
+        super(jugador);
+        this.proteccion = proteccion;
+        this.causa = causa;
+    }
+
+    public ProtectionRecord getProteccion() {
+        return proteccion;
+    }
+
+    public CausaZona getCausa() {
+        return causa;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,262 @@
+package com.protectium.storage;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recuperación del journal después de un crash: entradas cortadas, CRC
+ * inválido, *.anterior + actual sobre el snapshot y rotaciones que fallan.
+ */
+class DiarioCambiosTest {
+
+    @TempDir
+    File carpeta;
+
+    private final Logger logger = silencioso();
+    private DiarioCambios diario;
+
+    @AfterEach
+    void cerrar() {
+        if (diario != null)
+            diario.cerrar();
+    }
+
+    // ---------------------------------------------------------------
+    // Framing
+    // ---------------------------------------------------------------
+
+    @Test
+    void entradaFinalCortadaSeDescartaYSeTrunca() throws IOException {
+        DatosProteccion a = datos(1), b = datos(2), c = datos(3);
+        reiniciar(List.of());
+        diario.anotar(a);
+        diario.anotar(b);
+        long largoDos = journal().length();
+        diario.anotar(c);
+        diario.cerrar();
+
+        // Crash a mitad de escribir c
+        truncar(journal(), journal().length() - 5);
+
+        assertEquals(Set.of(a.getId(), b.getId()), ids(reiniciar(List.of())));
+        assertEquals(largoDos, journal().length(), "la cola ilegible se trunca");
+
+        // Lo anexado después de truncar se lee
+        DatosProteccion d = datos(4);
+        diario.anotar(d);
+        assertEquals(Set.of(a.getId(), b.getId(), d.getId()), ids(reiniciar(List.of())));
+    }
+
+    @Test
+    void crcInvalidoEnMedioDescartaDesdeAhi() throws IOException {
+        DatosProteccion a = datos(1);
+        reiniciar(List.of());
+        diario.anotar(a);
+        long largoUno = journal().length();
+        diario.anotar(datos(2));
+        diario.anotar(datos(3));
+        diario.cerrar();
+
+        // Un byte del contenido de la segunda entrada (después de largo y CRC)
+        invertirByte(journal(), largoUno + 8 + 20);
+
+        assertEquals(Set.of(a.getId()), ids(reiniciar(List.of())));
+        assertEquals(largoUno, journal().length());
+    }
+
+    // ---------------------------------------------------------------
+    // Reaplicar sobre el snapshot
+    // ---------------------------------------------------------------
+
+    @Test
+    void reaplicaAnteriorYLuegoActualSobreElSnapshot() throws IOException {
+        World mundo = mundoFalso("mundo");
+        DatosProteccion a = datos(1), b = datos(2), c = datos(3);
+        List<DatosProteccion> snapshot = List.of(a, b);
+        UUID jugador = UUID.randomUUID();
+
+        reiniciar(snapshot);
+        ProtectionRecord recA = a.crearRegistro(mundo);
+        diario.alCambiarFlag(recA, "fire", true);
+        diario.alCambiarMiembro(recA, jugador, ProtectionRecord.MemberRole.MEMBER);
+        diario.rotar();
+        diario.alCambiarFlag(recA, "fire", false);
+        diario.alEliminar(b.crearRegistro(mundo));
+        diario.anotar(c);
+        diario.cerrar();
+        assertTrue(anterior().exists());
+
+        Map<UUID, DatosProteccion> porId = porId(reiniciar(snapshot));
+        assertEquals(Set.of(a.getId(), c.getId()), porId.keySet());
+        assertEquals(false, porId.get(a.getId()).getFlags().get("fire"), "el actual va después de *.anterior");
+        assertEquals(ProtectionRecord.MemberRole.MEMBER, porId.get(a.getId()).getMiembros().get(jugador));
+    }
+
+    @Test
+    void reaplicarLoQueYaEstaEnElSnapshotNoCambiaNada() throws IOException {
+        DatosProteccion a = datos(1).conFlag("fire", true);
+        reiniciar(List.of());
+        diario.anotar(a);
+        diario.cerrar();
+
+        Map<UUID, DatosProteccion> porId = porId(reiniciar(List.of(a)));
+        assertEquals(1, porId.size());
+        assertEquals(true, porId.get(a.getId()).getFlags().get("fire"));
+    }
+
+    // ---------------------------------------------------------------
+    // Rotación
+    // ---------------------------------------------------------------
+
+    @Test
+    void rotacionFallidaDejaElJournalAbierto() throws IOException {
+        DatosProteccion a = datos(1), b = datos(2);
+        reiniciar(List.of());
+        diario.anotar(a);
+
+        // *.anterior existe pero no se puede abrir para anexar
+        assertTrue(anterior().mkdir());
+        assertTrue(new File(anterior(), "x").createNewFile());
+        assertThrows(IOException.class, diario::rotar);
+
+        diario.anotar(b);
+        diario.cerrar();
+        Files.delete(new File(anterior(), "x").toPath());
+        Files.delete(anterior().toPath());
+
+        assertEquals(Set.of(a.getId(), b.getId()), ids(reiniciar(List.of())));
+    }
+
+    @Test
+    void copiaCortadaHaciaAnteriorNoPierdeNada() throws IOException {
+        DatosProteccion a = datos(1), b = datos(2), c = datos(3);
+        reiniciar(List.of());
+        diario.anotar(a);
+        diario.rotar(); // snapshot que nunca se escribió: a queda en *.anterior
+        diario.anotar(b);
+        diario.anotar(c);
+        diario.cerrar();
+
+        // Crash en la rotación siguiente, a mitad de copiar el actual
+        byte[] actual = Files.readAllBytes(journal().toPath());
+        try (RandomAccessFile destino = new RandomAccessFile(anterior(), "rw")) {
+            destino.seek(destino.length());
+            destino.write(actual, 0, actual.length / 2 + 3);
+        }
+
+        assertEquals(Set.of(a.getId(), b.getId(), c.getId()), ids(reiniciar(List.of())));
+    }
+
+    @Test
+    void descartarAnteriorBorraSoloLoRotado() throws IOException {
+        DatosProteccion a = datos(1), b = datos(2);
+        reiniciar(List.of());
+        diario.anotar(a);
+        diario.rotar();
+        diario.anotar(b);
+        diario.descartarAnterior();
+        diario.cerrar();
+
+        assertFalse(anterior().exists());
+        assertEquals(Set.of(b.getId()), ids(reiniciar(List.of())));
+    }
+
+    // ---------------------------------------------------------------
+    // Utilidades
+    // ---------------------------------------------------------------
+
+    /** Cierra el journal abierto y recupera con uno nuevo, como al reiniciar el servidor. */
+    private List<DatosProteccion> reiniciar(List<DatosProteccion> snapshot) throws IOException {
+        if (diario != null)
+            diario.cerrar();
+        diario = new DiarioCambios(carpeta, logger);
+        return diario.recuperar(new ArrayList<>(snapshot));
+    }
+
+    private File journal() {
+        return new File(carpeta, DiarioCambios.ARCHIVO);
+    }
+
+    private File anterior() {
+        return new File(carpeta, DiarioCambios.ARCHIVO + ".anterior");
+    }
+
+    private static DatosProteccion datos(int n) {
+        UUID dueno = UUID.randomUUID();
+        Map<UUID, ProtectionRecord.MemberRole> miembros = new HashMap<>();
+        miembros.put(dueno, ProtectionRecord.MemberRole.OWNER);
+        return new DatosProteccion(UUID.randomUUID(), ProtectionType.AREA, dueno, n, 5,
+                "mundo", n * 100, 64, -n * 100, miembros, Map.of());
+    }
+
+    private static Set<UUID> ids(List<DatosProteccion> datos) {
+        return datos.stream().map(DatosProteccion::getId).collect(Collectors.toSet());
+    }
+
+    private static Map<UUID, DatosProteccion> porId(List<DatosProteccion> datos) {
+        Map<UUID, DatosProteccion> out = new HashMap<>();
+        for (DatosProteccion d : datos)
+            out.put(d.getId(), d);
+        return out;
+    }
+
+    private static void truncar(File archivo, long largo) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(archivo, "rw")) {
+            raf.setLength(largo);
+        }
+    }
+
+    private static void invertirByte(File archivo, long pos) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(archivo, "rw")) {
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0xFF);
+        }
+    }
+
+    private static Logger silencioso() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(Level.OFF);
+        return logger;
+    }
+
+    /**
+     * Mundo Bukkit falso, como en los benchmarks: solo nombre y UUID, que es
+     * lo que usa un ProtectionRecord fuera del servidor.
+     */
+    private static World mundoFalso(String nombre) {
+        UUID id = UUID.nameUUIDFromBytes(nombre.getBytes());
+        return (World) Proxy.newProxyInstance(DiarioCambiosTest.class.getClassLoader(),
+                new Class<?>[] { World.class },
+                (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "getName", "toString" -> nombre;
+                    case "getUID" -> id;
+                    case "hashCode" -> id.hashCode();
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
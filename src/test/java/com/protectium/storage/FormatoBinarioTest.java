@@ -0,0 +1,260 @@
+package com.protectium.storage;
+
+import com.protectium.protection.ProtectionRecord;
+import com.protectium.protection.ProtectionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ida y vuelta del formato binario (v2 por bloques), lectura de archivos
+ * v1 y rechazo de archivos corruptos, con y sin pool.
+ */
+class FormatoBinarioTest {
+
+    /** Más de un bloque de 2048 y el último incompleto. */
+    private static final int CANTIDAD = 5000;
+
+    @TempDir
+    File carpeta;
+
+    private final FormatoBinario formato = new FormatoBinario();
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void cerrar() {
+        pool.shutdownNow();
+    }
+
+    // ---------------------------------------------------------------
+    // Ida y vuelta
+    // ---------------------------------------------------------------
+
+    @Test
+    void idaYVueltaSinPool() throws IOException {
+        List<DatosProteccion> datos = dataset(CANTIDAD);
+        File archivo = escribir(datos);
+        assertIguales(datos, formato.leer(archivo));
+    }
+
+    @Test
+    void idaYVueltaConPoolMantieneElOrden() throws IOException {
+        List<DatosProteccion> datos = dataset(CANTIDAD);
+        File archivo = escribir(datos);
+        assertIguales(datos, formato.leer(archivo, pool));
+        assertIguales(formato.leer(archivo, null), formato.leer(archivo, pool));
+    }
+
+    @Test
+    void idaYVueltaVacio() throws IOException {
+        File archivo = escribir(List.of());
+        assertTrue(formato.leer(archivo).isEmpty());
+        assertTrue(formato.leer(archivo, pool).isEmpty());
+    }
+
+    @Test
+    void leeArchivosV1() throws IOException {
+        List<DatosProteccion> datos = dataset(300);
+        File archivo = new File(carpeta, "v1.dat");
+        Files.write(archivo.toPath(), conCrc(v1(datos)));
+
+        assertIguales(datos, formato.leer(archivo));
+        assertIguales(datos, formato.leer(archivo, pool));
+    }
+
+    // ---------------------------------------------------------------
+    // Archivos corruptos
+    // ---------------------------------------------------------------
+
+    @Test
+    void rechazaCrcInvalido() throws IOException {
+        File archivo = escribir(dataset(100));
+        byte[] bytes = Files.readAllBytes(archivo.toPath());
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(archivo.toPath(), bytes);
+
+        assertCorrupto(archivo, "CRC");
+    }
+
+    @Test
+    void rechazaBloqueTruncado() throws IOException {
+        File archivo = escribir(dataset(100));
+        byte[] bytes = Files.readAllBytes(archivo.toPath());
+        // El largo del primer bloque apunta más allá del final
+        ByteBuffer.wrap(bytes).putInt(inicioBloques(bytes) + 4, bytes.length);
+        Files.write(archivo.toPath(), recalcularCrc(bytes));
+
+        assertCorrupto(archivo, "truncado");
+    }
+
+    @Test
+    void rechazaIndiceDeCadenaFueraDeRango() throws IOException {
+        File archivo = escribir(dataset(100));
+        byte[] bytes = Files.readAllBytes(archivo.toPath());
+        // Índice del tipo de la primera protección: cabecera del bloque + id
+        ByteBuffer.wrap(bytes).putInt(inicioBloques(bytes) + 8 + 16, 9999);
+        Files.write(archivo.toPath(), recalcularCrc(bytes));
+
+        assertCorrupto(archivo, "fuera de rango");
+    }
+
+    @Test
+    void rechazaArchivoCortado() throws IOException {
+        File archivo = escribir(dataset(100));
+        byte[] bytes = Files.readAllBytes(archivo.toPath());
+        Files.write(archivo.toPath(), Arrays.copyOf(bytes, 6));
+
+        assertCorrupto(archivo, "truncado");
+    }
+
+    // ---------------------------------------------------------------
+    // Utilidades
+    // ---------------------------------------------------------------
+
+    private File escribir(List<DatosProteccion> datos) throws IOException {
+        File archivo = new File(carpeta, FormatoBinario.ARCHIVO);
+        formato.escribir(SnapshotRegistro.desde(datos), archivo);
+        return archivo;
+    }
+
+    private void assertCorrupto(File archivo, String mensaje) {
+        IOException sinPool = assertThrows(IOException.class, () -> formato.leer(archivo));
+        IOException conPool = assertThrows(IOException.class, () -> formato.leer(archivo, pool));
+        assertTrue(sinPool.getMessage().contains(mensaje), sinPool.getMessage());
+        assertTrue(conPool.getMessage().contains(mensaje), conPool.getMessage());
+    }
+
+    private static List<DatosProteccion> dataset(int n) {
+        Random random = new Random(n);
+        ProtectionType[] tipos = ProtectionType.values();
+        ProtectionRecord.MemberRole[] roles = ProtectionRecord.MemberRole.values();
+        List<DatosProteccion> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            UUID dueno = new UUID(random.nextLong(), random.nextLong());
+            Map<UUID, ProtectionRecord.MemberRole> miembros = new HashMap<>();
+            miembros.put(dueno, ProtectionRecord.MemberRole.OWNER);
+            for (int j = random.nextInt(3); j > 0; j--)
+                miembros.put(new UUID(random.nextLong(), random.nextLong()), roles[random.nextInt(roles.length)]);
+            Map<String, Boolean> flags = new HashMap<>();
+            if (random.nextBoolean())
+                flags.put("fire", random.nextBoolean());
+            if (random.nextBoolean())
+                flags.put("pvp", random.nextBoolean());
+            out.add(new DatosProteccion(new UUID(random.nextLong(), random.nextLong()),
+                    tipos[random.nextInt(tipos.length)], dueno, random.nextLong(), 1 + random.nextInt(100),
+                    "mundo" + random.nextInt(3), random.nextInt(), random.nextInt(384) - 64, random.nextInt(),
+                    miembros, flags));
+        }
+        return out;
+    }
+
+    private static void assertIguales(List<DatosProteccion> esperado, List<DatosProteccion> leido) {
+        assertEquals(esperado.size(), leido.size());
+        for (int i = 0; i < esperado.size(); i++) {
+            DatosProteccion a = esperado.get(i), b = leido.get(i);
+            assertEquals(a.getId(), b.getId(), "orden en " + i);
+            assertEquals(a.getTipo(), b.getTipo());
+            assertEquals(a.getColocadoPor(), b.getColocadoPor());
+            assertEquals(a.getMarcaTiempo(), b.getMarcaTiempo());
+            assertEquals(a.getRadio(), b.getRadio());
+            assertEquals(a.getMundo(), b.getMundo());
+            assertEquals(a.getX(), b.getX());
+            assertEquals(a.getY(), b.getY());
+            assertEquals(a.getZ(), b.getZ());
+            assertEquals(a.getMiembros(), b.getMiembros());
+            assertEquals(a.getFlags(), b.getFlags());
+        }
+    }
+
+    /** Posición de la cabecera del primer bloque en un archivo v2. */
+    private static int inicioBloques(byte[] bytes) throws IOException {
+        ByteArrayInputStream entrada = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(entrada);
+        in.readInt(); // magia
+        in.readShort(); // versión
+        for (int n = in.readInt(); n > 0; n--)
+            in.readUTF();
+        in.readInt(); // protecciones
+        in.readInt(); // bloques
+        return bytes.length - entrada.available();
+    }
+
+    /** Reemplaza el CRC final para que el daño llegue a la decodificación. */
+    private static byte[] recalcularCrc(byte[] bytes) {
+        return conCrc(Arrays.copyOf(bytes, bytes.length - 4));
+    }
+
+    private static byte[] conCrc(byte[] contenido) {
+        CRC32 crc = new CRC32();
+        crc.update(contenido);
+        byte[] out = Arrays.copyOf(contenido, contenido.length + 4);
+        ByteBuffer.wrap(out).putInt(contenido.length, (int) crc.getValue());
+        return out;
+    }
+
+    /** Archivo v1 (protecciones sin bloques), sin el CRC final. */
+    private static byte[] v1(List<DatosProteccion> datos) throws IOException {
+        List<String> cadenas = new ArrayList<>();
+        Map<String, Integer> indices = new HashMap<>();
+        for (DatosProteccion d : datos) {
+            indice(cadenas, indices, d.getMundo());
+            indice(cadenas, indices, d.getTipo().getConfigKey());
+            for (ProtectionRecord.MemberRole rol : d.getMiembros().values())
+                indice(cadenas, indices, rol.name());
+            for (String flag : d.getFlags().keySet())
+                indice(cadenas, indices, flag);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x50525443);
+        out.writeShort(1);
+        out.writeInt(cadenas.size());
+        for (String s : cadenas)
+            out.writeUTF(s);
+        out.writeInt(datos.size());
+        for (DatosProteccion d : datos) {
+            escribirUuid(out, d.getId());
+            out.writeInt(indices.get(d.getTipo().getConfigKey()));
+            escribirUuid(out, d.getColocadoPor());
+            out.writeLong(d.getMarcaTiempo());
+            out.writeInt(d.getRadio());
+            out.writeInt(indices.get(d.getMundo()));
+            out.writeInt(d.getX());
+            out.writeInt(d.getY());
+            out.writeInt(d.getZ());
+            out.writeInt(d.getMiembros().size());
+            for (Map.Entry<UUID, ProtectionRecord.MemberRole> e : d.getMiembros().entrySet()) {
+                escribirUuid(out, e.getKey());
+                out.writeInt(indices.get(e.getValue().name()));
+            }
+            out.writeInt(d.getFlags().size());
+            for (Map.Entry<String, Boolean> e : d.getFlags().entrySet()) {
+                out.writeInt(indices.get(e.getKey()));
+                out.writeBoolean(e.getValue());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void indice(List<String> cadenas, Map<String, Integer> indices, String s) {
+        if (indices.putIfAbsent(s, cadenas.size()) == null)
+            cadenas.add(s);
+    }
+
+    private static void escribirUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+}